@@ -0,0 +1,55 @@
+package pl.casino.be.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local ID token verification (RS256 signature and claim checks) against an in-memory 2048-bit key set,
+ * i.e. the cost of a token that misses the verified-token cache, without any network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdTokenVerifierBenchmark {
+
+    private static final String PROJECT_ID = "casino-benchmark";
+
+    private LocalIdTokenVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        verifier = new LocalIdTokenVerifier(keyId -> Optional.of(keyPair.getPublic()), new ObjectMapper(), PROJECT_ID, 30);
+
+        long now = System.currentTimeMillis() / 1000;
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        String header = base64.encodeToString("{\"alg\":\"RS256\",\"kid\":\"key-1\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = base64.encodeToString(("{\"aud\":\"" + PROJECT_ID + "\",\"iss\":\"https://securetoken.google.com/" + PROJECT_ID
+                + "\",\"sub\":\"user-1\",\"email\":\"user@example.com\",\"iat\":" + now + ",\"auth_time\":" + now
+                + ",\"exp\":" + (now + 3600) + "}").getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update((header + "." + claims).getBytes(StandardCharsets.US_ASCII));
+        token = header + "." + claims + "." + base64.encodeToString(signature.sign());
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return verifier.verify(token);
+    }
+}
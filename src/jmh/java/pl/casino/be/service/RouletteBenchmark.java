@@ -0,0 +1,64 @@
+package pl.casino.be.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.casino.be.dto.BetRequest;
+import pl.casino.be.service.roulette.RouletteSlip;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Roulette payout evaluation: building a slip from client bets and settling it against every pocket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouletteBenchmark {
+
+    private static final BigDecimal CHIP = new BigDecimal("10.00");
+
+    private final List<BetRequest> singleBet = List.of(new BetRequest(CHIP, "number", "17", "bench", null, null));
+    private final List<BetRequest> twentyChips = new ArrayList<>();
+    private RouletteSlip singleSlip;
+    private RouletteSlip twentyChipSlip;
+
+    @Setup
+    public void setUp() {
+        String[][] bets = {
+                {"number", "17"}, {"number", "0"}, {"split", "17-20"}, {"split", "0-1"}, {"street", "13-14-15"},
+                {"corner", "17-18-20-21"}, {"line", "31-32-33-34-35-36"}, {"dozen", "2"}, {"column", "3"}, {"color", "red"},
+                {"color", "black"}, {"parity", "odd"}, {"parity", "even"}, {"half", "low"}, {"half", "high"},
+                {"split", "5-8"}, {"street", "0-1-2"}, {"corner", "0-1-2-3"}, {"number", "36"}, {"dozen", "1"}
+        };
+        for (String[] bet : bets) {
+            twentyChips.add(new BetRequest(CHIP, bet[0], bet[1], "bench", null, null));
+        }
+        singleSlip = RouletteSlip.of(singleBet);
+        twentyChipSlip = RouletteSlip.of(twentyChips);
+    }
+
+    @Benchmark
+    public RouletteSlip buildTwentyChipSlip() {
+        return RouletteSlip.of(twentyChips);
+    }
+
+    @Benchmark
+    public void singleBet(Blackhole blackhole) {
+        for (int pocket = 0; pocket <= 36; pocket++) {
+            blackhole.consume(singleSlip.payout(pocket));
+        }
+    }
+
+    @Benchmark
+    public void twentyChipSlip(Blackhole blackhole) {
+        for (int pocket = 0; pocket <= 36; pocket++) {
+            blackhole.consume(twentyChipSlip.payout(pocket));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pl.casino.be.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.GameType;
+import pl.casino.be.service.ledger.BalanceLedger;
+import pl.casino.be.service.ledger.LedgerJournal;
+import pl.casino.be.storage.InMemoryRepositories;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balance mutation through the wallet and the in-process ledger, with the journal on local disk
+ * (no fsync) and the write-behind flusher running against a storage stub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletBenchmark {
+
+    private static final int USERS = 64;
+    private static final BigDecimal STAKE = new BigDecimal("1.00");
+
+    private Path journalFile;
+    private LedgerJournal journal;
+    private BalanceLedger ledger;
+    private WalletService walletService;
+    private ScheduledExecutorService flusher;
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Player {
+        String uid;
+
+        @Setup
+        public void setUp(WalletBenchmark benchmark) {
+            uid = "user-" + benchmark.nextUser.getAndIncrement() % USERS;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryRepositories.Users users = new InMemoryRepositories.Users();
+        for (int i = 0; i < USERS; i++) {
+            users.withUser("user-" + i, new BigDecimal("1000000000.00"));
+        }
+        InMemoryRepositories.Transactions transactions = new InMemoryRepositories.Transactions();
+        InMemoryRepositories.GameHistories games = new InMemoryRepositories.GameHistories();
+
+        journalFile = Files.createTempFile("ledger-bench", ".journal");
+        ObjectMapper objectMapper = new ObjectMapper();
+        journal = new LedgerJournal(objectMapper, journalFile.toString(), false, 16 * 1024 * 1024);
+        CasinoMetrics metrics = new CasinoMetrics(new SimpleMeterRegistry());
+        ledger = new BalanceLedger(users, transactions, journal, metrics, 5);
+        DashboardService dashboardService =
+                new DashboardService(games, new SimpMessagingTemplate((_, _) -> true), objectMapper, 20);
+        walletService = new WalletService(ledger, new CasinoStatisticsService(users, transactions, games),
+                dashboardService, metrics);
+
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(ledger::flush, 200, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        ledger.flush();
+        journal.close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Benchmark
+    public void betAndWin(Player player) {
+        walletService.placeBet(player.uid, STAKE);
+        walletService.processWin(player.uid, STAKE);
+    }
+
+    @Benchmark
+    public void settleGame(Player player) {
+        GameHistory game = new GameHistory();
+        game.setUserId(player.uid);
+        game.setGameType(GameType.ROULETTE);
+        game.setBetAmount(STAKE);
+        game.setWinAmount(STAKE);
+        game.setResult("17");
+        game.setTimestamp(new Date());
+        walletService.settleGame(player.uid, STAKE, STAKE, game);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void betAndWinContended(Player player) {
+        walletService.placeBet(player.uid, STAKE);
+        walletService.processWin(player.uid, STAKE);
+    }
+}
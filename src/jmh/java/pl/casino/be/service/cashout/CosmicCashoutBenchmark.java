@@ -0,0 +1,86 @@
+package pl.casino.be.service.cashout;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import pl.casino.be.dto.PlayerListDeltaDto;
+import pl.casino.be.dto.PlayerListSnapshotDto;
+import pl.casino.be.dto.PlayerStateDto;
+import pl.casino.be.model.PlayerStatus;
+import pl.casino.be.service.cluster.ClusterNode;
+import pl.casino.be.service.cluster.LocalClusterTransport;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cosmic Cashout hot paths: the round tick, the cash-out payout and the player list serialization
+ * (full snapshot for new subscribers and the coalesced delta frame).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CosmicCashoutBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int players;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Messages are discarded, so only building and encoding the frame is measured
+    private final ClusterNode clusterNode = new ClusterNode(new LocalClusterTransport(),
+            new SimpMessagingTemplate((_, _) -> true), new DefaultSimpUserRegistry(), objectMapper, "bench", 60_000);
+    private final CashoutFrameBroadcaster broadcaster = new CashoutFrameBroadcaster(clusterNode, objectMapper);
+    private final BigDecimal stake = new BigDecimal("25.00");
+
+    private PlayerListSnapshotDto snapshot;
+    private List<PlayerListDeltaDto> deltas;
+    private long elapsedNanos;
+
+    @Setup
+    public void setUp() {
+        List<PlayerStateDto> list = new ArrayList<>(players);
+        deltas = new ArrayList<>(players);
+        for (int seat = 0; seat < players; seat++) {
+            PlayerStateDto player = new PlayerStateDto(seat, "Player" + seat, stake, PlayerStatus.IN_GAME, null);
+            list.add(player);
+            deltas.add(new PlayerListDeltaDto(seat + 1, PlayerListDeltaDto.Op.ADD, seat, player));
+        }
+        snapshot = new PlayerListSnapshotDto(players, list);
+        clusterNode.join();
+        clusterNode.relayToClients(CashoutFrameBroadcaster.FRAME_TOPIC);
+    }
+
+    @Benchmark
+    public void tick() {
+        elapsedNanos += TimeUnit.MILLISECONDS.toNanos(100);
+        broadcaster.multiplier(FixedPointMultiplier.at(elapsedNanos % TimeUnit.SECONDS.toNanos(30)));
+    }
+
+    @Benchmark
+    public void cashOutPayout(Blackhole blackhole) {
+        long multiplier = FixedPointMultiplier.at(TimeUnit.MILLISECONDS.toNanos(12_345));
+        blackhole.consume(FixedPointMultiplier.payout(stake, multiplier));
+        blackhole.consume(FixedPointMultiplier.toBigDecimal(multiplier));
+    }
+
+    @Benchmark
+    public byte[] snapshotSerialization() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshot);
+    }
+
+    @Benchmark
+    public void deltaFrame() {
+        for (PlayerListDeltaDto delta : deltas) {
+            broadcaster.delta(delta);
+        }
+        broadcaster.publishFrame();
+    }
+}
@@ -0,0 +1,18 @@
+package pl.casino.be.service.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsernameGeneratorBenchmark {
+
+    @Benchmark
+    public String generateFakeUsername() {
+        return UsernameGenerator.generateFakeUsername();
+    }
+}
@@ -0,0 +1,107 @@
+package pl.casino.be.storage;
+
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.User;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage stubs for benchmarks: users are kept in a map, everything else is only counted,
+ * so measurements cover the service code and not a storage backend.
+ */
+public final class InMemoryRepositories {
+
+    private InMemoryRepositories() {}
+
+    public static class Users implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+
+        public Users withUser(String uid, BigDecimal balance) {
+            User user = new User();
+            user.setUid(uid);
+            user.setDisplayName(uid);
+            user.setBalance(balance);
+            users.put(uid, user);
+            return this;
+        }
+
+        @Override
+        public Optional<User> findById(String uid) {
+            return Optional.ofNullable(users.get(uid));
+        }
+
+        @Override
+        public void save(User user) {
+            users.put(user.getUid(), user);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public Map<String, String> findDisplayNames(Collection<String> uids) {
+            Map<String, String> names = new HashMap<>();
+            uids.forEach(uid -> findById(uid).ifPresent(user -> names.put(uid, user.getDisplayName())));
+            return names;
+        }
+
+        @Override
+        public long count() {
+            return users.size();
+        }
+    }
+
+    public static class Transactions implements TransactionRepository {
+        private final LongAdder saved = new LongAdder();
+
+        @Override
+        public void saveAndApply(List<Transaction> transactions, List<GameHistory> games) {
+            saved.add(transactions.size());
+        }
+
+        @Override
+        public List<Transaction> findRecent(int limit) {
+            return List.of();
+        }
+
+        @Override
+        public long count() {
+            return saved.sum();
+        }
+    }
+
+    public static class GameHistories implements GameHistoryRepository {
+        private final LongAdder saved = new LongAdder();
+
+        @Override
+        public void saveAll(List<GameHistory> histories) {
+            saved.add(histories.size());
+        }
+
+        @Override
+        public List<GameHistory> findRecent(int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<GameHistory> findRecentWins(int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<GameHistory> findByUser(String uid, GameHistoryCursor after, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public long count() {
+            return saved.sum();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package pl.casino.be.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.casino.be.service.cluster.ClusterTransport;
+import pl.casino.be.service.cluster.LocalClusterTransport;
+
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * In-process transport: the node forms a cluster of one and always leads.
+     * Declare another {@link ClusterTransport} bean to run several nodes against a shared medium.
+     */
+    @Bean
+    @ConditionalOnMissingBean(ClusterTransport.class)
+    public ClusterTransport clusterTransport() {
+        return new LocalClusterTransport();
+    }
+}
@@ -7,12 +7,19 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.cloud.FirestoreClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.Resource;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 
+/**
+ * Firebase Admin SDK beans. They are created on first use, so embedded storage with the local token verifier
+ * runs without a service account key; only promoting a user to admin then needs it.
+ */
 @Configuration
 public class FirebaseConfig {
 
@@ -20,7 +27,11 @@ public class FirebaseConfig {
     private Resource serviceAccountKey;
 
     @Bean
+    @Lazy
     public FirebaseApp firebaseApp() throws IOException {
+        if (!serviceAccountKey.exists()) {
+            throw new FileNotFoundException("Firebase service account key not found: " + serviceAccountKey.getDescription());
+        }
         FirebaseOptions options = FirebaseOptions.builder()
                 .setCredentials(GoogleCredentials.fromStream(serviceAccountKey.getInputStream()))
                 .build();
@@ -29,11 +40,13 @@ public class FirebaseConfig {
     }
 
     @Bean
+    @Lazy
     public FirebaseAuth firebaseAuth(FirebaseApp firebaseApp) {
         return FirebaseAuth.getInstance(firebaseApp);
     }
 
     @Bean
+    @ConditionalOnProperty(name = "casino.storage.type", havingValue = "firestore", matchIfMissing = true)
     public Firestore firestore(FirebaseApp firebaseApp) {
         return FirestoreClient.getFirestore(firebaseApp);
     }
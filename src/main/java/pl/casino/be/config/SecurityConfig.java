@@ -26,7 +26,9 @@ public class SecurityConfig {
             "/ws/**",
             "/api/public/**",
             "/api/v1/games/cosmic-cashout/state",
-            "/api/v1/dashboard/big-wins"
+            "/api/v1/games/roulette/table/state",
+            "/api/v1/dashboard/big-wins",
+            "/actuator/health"
     };
 
     public SecurityConfig(FirebaseTokenFilter firebaseTokenFilter) {
@@ -42,8 +44,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authz -> authz
                         // 1. Allow public access to all endpoints in the list.
                         .requestMatchers(PUBLIC_ENDPOINTS).permitAll()
-                        // 2. Secure admin endpoints.
-                        .requestMatchers("/api/v1/admin/**").hasAuthority("ROLE_ADMIN")
+                        // 2. Secure admin endpoints. Actuator metrics reveal traffic and load, so they are admin-only too.
+                        .requestMatchers("/api/v1/admin/**", "/actuator/**").hasAuthority("ROLE_ADMIN")
                         // 3. Secure all other endpoints.
                         .anyRequest().authenticated()
                 )
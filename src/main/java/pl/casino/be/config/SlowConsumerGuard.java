@@ -0,0 +1,108 @@
+package pl.casino.be.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import pl.casino.be.metrics.CasinoMetrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one slow WebSocket client from holding up broadcasts to everyone else.
+ * Messages published with {@link #SUPERSEDABLE_HEADER} (multiplier-only Cosmic Cashout frames) are replaced by
+ * the next one anyway, so when such a message is still waiting for delivery after the stale threshold the session
+ * is behind: depending on the policy the message is dropped, or the session is disconnected so the client
+ * reconnects and resyncs from a snapshot. All other messages (state changes, player list deltas) are always delivered.
+ */
+@Slf4j
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /**
+     * Message header holding the {@link System#nanoTime()} at which a supersedable message was published.
+     */
+    public static final String SUPERSEDABLE_HEADER = "casinoSupersedableSince";
+
+    public enum Policy { DROP, DISCONNECT }
+
+    private final CasinoMetrics metrics;
+    private final Policy policy;
+    private final long staleAfterNanos;
+
+    // Only tracked for the disconnect policy, keyed by the STOMP session ID
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public SlowConsumerGuard(CasinoMetrics metrics,
+                             @Value("${casino.websocket.slow-consumer-policy:drop}") String policy,
+                             @Value("${casino.websocket.frame-stale-ms:300}") long staleAfterMillis) {
+        this.metrics = metrics;
+        this.policy = Policy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(staleAfterMillis);
+    }
+
+    /**
+     * Runs when a message is handed to the outbound channel. Broadcasts keep publish order per session,
+     * so this happens once the previous message of the session was written; a refused message is skipped.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!(message.getHeaders().get(SUPERSEDABLE_HEADER) instanceof Long publishedAt)
+                || System.nanoTime() - publishedAt <= staleAfterNanos) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (policy == Policy.DISCONNECT && sessionId != null) {
+            disconnect(sessionId);
+        } else {
+            metrics.staleMessageDropped();
+        }
+        return null;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        if (policy != Policy.DISCONNECT) {
+            return handler;
+        }
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private void disconnect(String sessionId) {
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        metrics.slowConsumerDisconnected();
+        log.info("Disconnecting slow WebSocket session {}.", sessionId);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Failed to close slow WebSocket session {}: {}", sessionId, e.getMessage());
+        }
+    }
+}
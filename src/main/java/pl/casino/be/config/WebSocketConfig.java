@@ -1,40 +1,122 @@
 package pl.casino.be.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import pl.casino.be.security.AuthChannelInterceptor;
 
+import java.text.MessageFormat;
+import java.util.concurrent.Executor;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final AuthChannelInterceptor authChannelInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+
+    @Value("${casino.websocket.virtual-threads:false}")
+    private boolean virtualThreads;
+    @Value("${casino.websocket.inbound.pool-size:8}")
+    private int inboundPoolSize;
+    @Value("${casino.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+    @Value("${casino.websocket.outbound.pool-size:16}")
+    private int outboundPoolSize;
+    @Value("${casino.websocket.outbound.queue-capacity:100000}")
+    private int outboundQueueCapacity;
+    @Value("${casino.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimitMillis;
+    @Value("${casino.websocket.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+    @Value("${casino.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
 
-    public WebSocketConfig(AuthChannelInterceptor authChannelInterceptor) {
+    public WebSocketConfig(AuthChannelInterceptor authChannelInterceptor, SlowConsumerGuard slowConsumerGuard) {
         this.authChannelInterceptor = authChannelInterceptor;
+        this.slowConsumerGuard = slowConsumerGuard;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Clients subscribe to topics starting with /topic
-        config.enableSimpleBroker("/topic");
+        // Clients subscribe to topics starting with /topic, and to their own queues under /user/queue
+        config.enableSimpleBroker("/topic", "/queue");
         // Messages from clients are sent to endpoints starting with /app
         config.setApplicationDestinationPrefixes("/app");
+        // Keep broadcasts in publish order per session, player list deltas rely on it
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // The endpoint that clients will connect to establish a WebSocket connection
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // The inbound pool would otherwise handle several messages of a session at once, e.g. a SUBSCRIBE before its CONNECT
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    /**
+     * Bounds what a single session may hold up: a send blocked for longer than the time limit, or more unsent
+     * data than the buffer limit, closes that session instead of stalling the threads that deliver to everyone.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration, "inbound", inboundPoolSize, inboundQueueCapacity);
         registration.interceptors(authChannelInterceptor);
     }
 
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration, "outbound", outboundPoolSize, outboundQueueCapacity);
+        registration.interceptors(slowConsumerGuard);
+    }
+
+    /**
+     * Runs a client channel on virtual threads, or on a fixed-size pool with a bounded queue so a burst
+     * of messages is rejected instead of growing the heap without limit.
+     */
+    private void configureExecutor(ChannelRegistration registration, String channel, int poolSize, int queueCapacity) {
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor(MessageFormat.format("stomp-{0}-", channel)));
+            return;
+        }
+        registration.taskExecutor()
+                .corePoolSize(poolSize)
+                .maxPoolSize(poolSize)
+                .queueCapacity(queueCapacity);
+    }
+
+    /**
+     * Exposes the number of messages waiting to be written to client sessions.
+     */
+    @Bean
+    public MeterBinder stompOutboundQueueMetrics(@Qualifier("clientOutboundChannelExecutor") Executor executor) {
+        return registry -> {
+            if (executor instanceof ThreadPoolTaskExecutor pool) {
+                Gauge.builder("casino.stomp.outbound.queue", pool, p -> p.getThreadPoolExecutor().getQueue().size())
+                        .description("Messages queued for delivery to WebSocket clients")
+                        .register(registry);
+            }
+        };
+    }
+
 }
\ No newline at end of file
@@ -13,7 +13,6 @@ import pl.casino.be.service.AdminService;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/admin")
@@ -43,28 +42,28 @@ public class AdminController {
     @GetMapping("/transactions")
     @Operation(summary = "Get all transactions history",
             description = "Returns a list of all financial transactions in the system.")
-    public ResponseEntity<List<AdminTransactionDto>> getAllTransactions() throws ExecutionException, InterruptedException {
+    public ResponseEntity<List<AdminTransactionDto>> getAllTransactions() {
         return ResponseEntity.ok(adminService.getAllTransactions());
     }
 
     @GetMapping("/games")
     @Operation(summary = "Get all games history",
             description = "Returns a list of all games played in the system.")
-    public ResponseEntity<List<AdminGameHistoryDto>> getAllGameHistories() throws ExecutionException, InterruptedException {
+    public ResponseEntity<List<AdminGameHistoryDto>> getAllGameHistories() {
         return ResponseEntity.ok(adminService.getAllGameHistories());
     }
 
     @GetMapping("/statistics")
     @Operation(summary = "Get casino statistics",
             description = "Returns key statistics about the casino's operation.")
-    public ResponseEntity<Map<String, Object>> getStatistics() throws ExecutionException, InterruptedException {
+    public ResponseEntity<Map<String, Object>> getStatistics() {
         return ResponseEntity.ok(adminService.getCasinoStatistics());
     }
 
     @GetMapping("/users")
     @Operation(summary = "Get all users list",
             description = "Returns a list of all registered users in the system.")
-    public ResponseEntity<List<UserProfileDto>> getAllUsers() throws ExecutionException, InterruptedException {
+    public ResponseEntity<List<UserProfileDto>> getAllUsers() {
         return ResponseEntity.ok(adminService.getAllUsers());
     }
 }
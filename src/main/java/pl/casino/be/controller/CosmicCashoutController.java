@@ -1,34 +1,84 @@
 package pl.casino.be.controller;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
+import pl.casino.be.dto.BetRejectedDto;
 import pl.casino.be.dto.BetRequest;
+import pl.casino.be.dto.PlayerListSnapshotDto;
+import pl.casino.be.exception.IdempotencyKeyException;
+import pl.casino.be.exception.InsufficientFundsException;
 import pl.casino.be.service.CosmicCashoutService;
+import pl.casino.be.service.idempotency.IdempotencyStore;
 
 import java.security.Principal;
 
+@Slf4j
 @Controller
 public class CosmicCashoutController {
 
     private final CosmicCashoutService cashoutService;
+    private final IdempotencyStore idempotencyStore;
 
-    public CosmicCashoutController(CosmicCashoutService cashoutService) {
+    public CosmicCashoutController(CosmicCashoutService cashoutService, IdempotencyStore idempotencyStore) {
         this.cashoutService = cashoutService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @MessageMapping("/cosmic-cashout/bet")
-    public void placeBet(BetRequest betRequest, Principal principal) {
+    public void placeBet(BetRequest betRequest, Principal principal, SimpMessageHeaderAccessor headers) {
         if (principal != null) {
             String uid = principal.getName();
-            cashoutService.placeBet(uid, betRequest.displayName(), betRequest.amount());
+            idempotencyStore.execute(uid, "cosmic-cashout/bet", betRequest.idempotencyKey(), betRequest, () -> {
+                cashoutService.placeBet(uid, headers.getSessionId(), betRequest.displayName(), betRequest.amount(), betRequest.autoCashout());
+                return null;
+            });
         }
     }
 
+    /**
+     * Sends the current player list straight to a client subscribing to /app/cosmic-cashout/players,
+     * before it starts applying the player list deltas carried by /topic/cashout/frame.
+     */
+    @SubscribeMapping("/cosmic-cashout/players")
+    public PlayerListSnapshotDto playerListSnapshot() {
+        return cashoutService.getPlayerListSnapshot();
+    }
+
     @MessageMapping("/cosmic-cashout/cashout")
-    public void cashOut(Principal principal) {
+    public void cashOut(Principal principal, SimpMessageHeaderAccessor headers) {
         if (principal != null) {
             String uid = principal.getName();
-            cashoutService.cashOut(uid);
+            cashoutService.cashOut(uid, headers.getSessionId());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tells the session that sent the bet or cash-out why it was refused, on /user/queue/errors.
+     * Commands a follower relays to the leader are answered the same way by the leader.
+     */
+    @MessageExceptionHandler({IllegalArgumentException.class, InsufficientFundsException.class, IdempotencyKeyException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public BetRejectedDto betRejected(RuntimeException e, Principal principal, SimpMessageHeaderAccessor headers) {
+        log.warn("Cosmic Cashout bet rejected for user {}: {}", principal != null ? principal.getName() : null, e.getMessage());
+        return new BetRejectedDto(headers.getDestination(), e.getMessage());
+    }
+
+    /**
+     * Any other failure is not the player's doing; its details stay in the log.
+     */
+    @MessageExceptionHandler(RuntimeException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public BetRejectedDto betFailed(RuntimeException e, Principal principal, SimpMessageHeaderAccessor headers) {
+        log.error("Cosmic Cashout request to {} failed for user {}.", headers.getDestination(),
+                principal != null ? principal.getName() : null, e);
+        String message = "/app/cosmic-cashout/bet".equals(headers.getDestination())
+                ? "The bet could not be placed, please try again."
+                : "The cash-out could not be completed, please try again.";
+        return new BetRejectedDto(headers.getDestination(), message);
+    }
+}
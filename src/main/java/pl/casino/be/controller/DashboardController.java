@@ -1,7 +1,13 @@
 package pl.casino.be.controller;
 
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,9 +15,6 @@ import org.springframework.web.bind.annotation.RestController;
 import pl.casino.be.dto.PublicGameHistoryDto;
 import pl.casino.be.service.DashboardService;
 
-import java.util.List;
-import java.util.concurrent.ExecutionException;
-
 @RestController
 @RequestMapping("/api/v1/dashboard")
 @Tag(name = "Dashboard", description = "Public endpoints for dashboard information")
@@ -21,7 +24,14 @@ public class DashboardController {
     private final DashboardService dashboardService;
 
     @GetMapping("/big-wins")
-    public ResponseEntity<List<PublicGameHistoryDto>> getRecentBigWins() throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(dashboardService.getRecentBigWins());
+    @Operation(summary = "Get the most recent wins",
+            description = "Returns the latest winning games, newest first. Live updates are pushed to /topic/dashboard/wins.")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = PublicGameHistoryDto.class))))
+    public ResponseEntity<byte[]> getRecentBigWins() {
+        // Pre-serialized snapshot, written as-is
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(dashboardService.getRecentBigWins());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package pl.casino.be.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.casino.be.dto.FairChainStateDto;
+import pl.casino.be.dto.FairVerificationDto;
+import pl.casino.be.service.fair.FairGame;
+import pl.casino.be.service.fair.ProvablyFairService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/public/fair")
+@Tag(name = "Provably Fair", description = "Public endpoints for verifying game outcomes")
+public class ProvablyFairController {
+
+    private final ProvablyFairService provablyFairService;
+
+    public ProvablyFairController(ProvablyFairService provablyFairService) {
+        this.provablyFairService = provablyFairService;
+    }
+
+    @GetMapping("/{game}")
+    @Operation(summary = "Get the outcome chain of a game",
+            description = "Returns the salt, the commitment of the chain segment in use and the latest revealed hashes. "
+                    + "Games: cosmic-cashout, roulette, roulette-table.")
+    public FairChainStateDto getChainState(@PathVariable String game) {
+        return provablyFairService.getChainState(FairGame.fromName(game));
+    }
+
+    @GetMapping("/{game}/verify")
+    @Operation(summary = "Verify a revealed hash",
+            description = "Derives the outcome as HMAC-SHA256(key = hash, message = salt) reduced to the game's range, "
+                    + "and returns SHA-256 of the hash, which must equal the previous round's hash or the segment commitment.")
+    public FairVerificationDto verify(@PathVariable String game, @RequestParam String hash) {
+        return provablyFairService.verify(FairGame.fromName(game), hash);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+}
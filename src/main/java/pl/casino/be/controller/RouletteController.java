@@ -4,15 +4,21 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import pl.casino.be.dto.BetRequest;
+import pl.casino.be.dto.RouletteSlipRequest;
+import pl.casino.be.exception.IdempotencyKeyException;
 import pl.casino.be.model.GameHistory;
 import pl.casino.be.service.RouletteService;
+import pl.casino.be.service.idempotency.IdempotencyStore;
 
 import java.security.Principal;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/games/roulette")
@@ -21,17 +27,45 @@ import java.security.Principal;
 public class RouletteController {
 
     private final RouletteService rouletteService;
+    private final IdempotencyStore idempotencyStore;
 
-    public RouletteController(RouletteService rouletteService) {
+    public RouletteController(RouletteService rouletteService, IdempotencyStore idempotencyStore) {
         this.rouletteService = rouletteService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping("/play")
     @Operation(summary = "Play Roulette",
-            description = "Accepts a bet, performs a spin, updates the balance, and returns the game result.")
-    public ResponseEntity<GameHistory> play(Principal principal, @RequestBody BetRequest betRequest) {
+            description = "Accepts a bet, performs a spin, updates the balance, and returns the game result. "
+                    + "Bet types: number, split, street, corner, line, dozen, column, color, parity (odd/even), half (low/high). "
+                    + "A retry with the same Idempotency-Key header returns the original game instead of spinning again.")
+    public ResponseEntity<GameHistory> play(Principal principal, @RequestBody BetRequest betRequest,
+                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         String uid = principal.getName();
-        GameHistory result = rouletteService.play(uid, betRequest);
+        GameHistory result = idempotencyStore.execute(uid, "roulette/play", idempotencyKey, betRequest,
+                () -> rouletteService.play(uid, betRequest));
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/spin")
+    @Operation(summary = "Play Roulette with a slip of bets",
+            description = "Settles all bets of the slip against one spin in a single balance update and returns the game result. "
+                    + "A retry with the same Idempotency-Key header returns the original game instead of spinning again.")
+    public ResponseEntity<GameHistory> spin(Principal principal, @RequestBody RouletteSlipRequest slipRequest,
+                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        String uid = principal.getName();
+        GameHistory result = idempotencyStore.execute(uid, "roulette/spin", idempotencyKey, slipRequest,
+                () -> rouletteService.play(uid, slipRequest.bets()));
+        return ResponseEntity.ok(result);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalidBet(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Map<String, String>> idempotencyKeyRejected(IdempotencyKeyException e) {
+        return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
+    }
+}
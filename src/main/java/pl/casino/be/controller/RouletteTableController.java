@@ -0,0 +1,59 @@
+package pl.casino.be.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+import pl.casino.be.dto.BetRejectedDto;
+import pl.casino.be.dto.RouletteSlipRequest;
+import pl.casino.be.exception.IdempotencyKeyException;
+import pl.casino.be.exception.InsufficientFundsException;
+import pl.casino.be.service.RouletteTableService;
+import pl.casino.be.service.idempotency.IdempotencyStore;
+
+import java.security.Principal;
+
+@Slf4j
+@Controller
+public class RouletteTableController {
+
+    private final RouletteTableService rouletteTableService;
+    private final IdempotencyStore idempotencyStore;
+
+    public RouletteTableController(RouletteTableService rouletteTableService, IdempotencyStore idempotencyStore) {
+        this.rouletteTableService = rouletteTableService;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    @MessageMapping("/roulette/bet")
+    public void placeBets(RouletteSlipRequest slipRequest, Principal principal) {
+        if (principal != null) {
+            String uid = principal.getName();
+            idempotencyStore.execute(uid, "roulette/bet", slipRequest.idempotencyKey(), slipRequest, () -> {
+                rouletteTableService.placeBets(uid, slipRequest.displayName(), slipRequest.bets());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Tells the session that sent the slip why it was refused, on /user/queue/errors.
+     */
+    @MessageExceptionHandler({IllegalArgumentException.class, InsufficientFundsException.class, IdempotencyKeyException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public BetRejectedDto betRejected(RuntimeException e, Principal principal) {
+        log.warn("Roulette table bet rejected for user {}: {}", principal != null ? principal.getName() : null, e.getMessage());
+        return new BetRejectedDto("/app/roulette/bet", e.getMessage());
+    }
+
+    /**
+     * Any other failure is not the player's doing; its details stay in the log.
+     */
+    @MessageExceptionHandler(RuntimeException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public BetRejectedDto betFailed(RuntimeException e, Principal principal) {
+        log.error("Roulette table bet failed for user {}.", principal != null ? principal.getName() : null, e);
+        return new BetRejectedDto("/app/roulette/bet", "The bet could not be placed, please try again.");
+    }
+}
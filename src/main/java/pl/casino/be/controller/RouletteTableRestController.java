@@ -0,0 +1,29 @@
+package pl.casino.be.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import pl.casino.be.dto.RouletteTableStateDto;
+import pl.casino.be.service.RouletteTableService;
+
+@RestController
+@RequestMapping("/api/v1/games/roulette/table")
+@Tag(name = "Games - Roulette", description = "Endpoint for the Roulette game")
+public class RouletteTableRestController {
+
+    private final RouletteTableService rouletteTableService;
+
+    public RouletteTableRestController(RouletteTableService rouletteTableService) {
+        this.rouletteTableService = rouletteTableService;
+    }
+
+    @GetMapping("/state")
+    @Operation(summary = "Get the shared roulette table",
+            description = "Returns the current round, when betting closes, the players' bets so far and the latest winning numbers. "
+                    + "Bets are sent to /app/roulette/bet, updates are published on /topic/roulette/table.")
+    public RouletteTableStateDto getTableState() {
+        return rouletteTableService.getTableState();
+    }
+}
@@ -1,19 +1,26 @@
 package pl.casino.be.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.casino.be.dto.GameHistoryPageDto;
 import pl.casino.be.dto.UserProfileDto;
-import pl.casino.be.model.GameHistory;
 import pl.casino.be.service.UserService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
-import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/user")
@@ -21,10 +28,14 @@ import java.util.concurrent.ExecutionException;
 @SecurityRequirement(name = "bearerAuth") // Requires authentication for all methods in this class
 public class UserController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/profile")
@@ -39,9 +50,52 @@ public class UserController {
 
     @GetMapping("/games")
     @Operation(summary = "Get the logged-in user's game history",
-            description = "Returns the full game history for the authenticated user.")
-    public ResponseEntity<List<GameHistory>> getMyGameHistory(Principal principal) throws ExecutionException, InterruptedException {
+            description = "Returns one page of the authenticated user's game history, newest first. "
+                    + "Pass the returned nextCursor to get the following page; it is null on the last page.")
+    public ResponseEntity<GameHistoryPageDto> getMyGameHistory(Principal principal,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "20") int limit) {
         String uid = principal.getName();
-        return ResponseEntity.ok(userService.getGameHistoryForUser(uid));
+        return ResponseEntity.ok(userService.getGameHistoryForUser(uid, cursor, limit));
+    }
+
+    @GetMapping("/games/export")
+    @Operation(summary = "Export the logged-in user's game history",
+            description = "Streams the full game history as newline-delimited JSON, newest first.")
+    public ResponseEntity<StreamingResponseBody> exportMyGameHistory(Principal principal) {
+        String uid = principal.getName();
+        StreamingResponseBody body = out -> {
+            try {
+                userService.exportGameHistory(uid, history -> writeLine(out, history), () -> flush(out));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("Content-Disposition", "attachment; filename=\"game-history.ndjson\"")
+                .body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
\ No newline at end of file
@@ -4,11 +4,15 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import pl.casino.be.exception.IdempotencyKeyException;
 import pl.casino.be.service.WalletService;
+import pl.casino.be.service.idempotency.IdempotencyStore;
 
 import java.math.BigDecimal;
 import java.security.Principal;
@@ -21,28 +25,43 @@ import java.util.Map;
 public class WalletController {
 
     private final WalletService walletService;
+    private final IdempotencyStore idempotencyStore;
 
-    public WalletController(WalletService walletService) {
+    public WalletController(WalletService walletService, IdempotencyStore idempotencyStore) {
         this.walletService = walletService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping("/deposit")
     @Operation(summary = "Deposit funds into the account",
-            description = "Deposits a specified amount into the user's balance.")
-    public ResponseEntity<Map<String, String>> deposit(Principal principal, @RequestBody Map<String, BigDecimal> payload) {
+            description = "Deposits a specified amount into the user's balance. "
+                    + "A retry with the same Idempotency-Key header returns the original result without depositing again.")
+    public ResponseEntity<Map<String, String>> deposit(Principal principal, @RequestBody Map<String, BigDecimal> payload,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         String uid = principal.getName();
         BigDecimal amount = payload.get("amount");
-        walletService.deposit(uid, amount);
-        return ResponseEntity.ok(Map.of("message", "Deposit successful."));
+        return idempotencyStore.execute(uid, "wallet/deposit", idempotencyKey, payload, () -> {
+            walletService.deposit(uid, amount);
+            return ResponseEntity.ok(Map.of("message", "Deposit successful."));
+        });
     }
 
     @PostMapping("/withdraw")
     @Operation(summary = "Withdraw funds from the account",
-            description = "Subtracts a specified amount from the user's balance if sufficient funds are available.")
-    public ResponseEntity<Map<String, String>> withdraw(Principal principal, @RequestBody Map<String, BigDecimal> payload) {
+            description = "Subtracts a specified amount from the user's balance if sufficient funds are available. "
+                    + "A retry with the same Idempotency-Key header returns the original result without withdrawing again.")
+    public ResponseEntity<Map<String, String>> withdraw(Principal principal, @RequestBody Map<String, BigDecimal> payload,
+                                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         String uid = principal.getName();
         BigDecimal amount = payload.get("amount");
-        walletService.withdraw(uid, amount);
-        return ResponseEntity.ok(Map.of("message", "Withdrawal successful."));
+        return idempotencyStore.execute(uid, "wallet/withdraw", idempotencyKey, payload, () -> {
+            walletService.withdraw(uid, amount);
+            return ResponseEntity.ok(Map.of("message", "Withdrawal successful."));
+        });
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Map<String, String>> idempotencyKeyRejected(IdempotencyKeyException e) {
+        return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
     }
 }
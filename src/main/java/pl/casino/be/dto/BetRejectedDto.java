@@ -0,0 +1,9 @@
+package pl.casino.be.dto;
+
+/**
+ * Sent to the session whose STOMP bet was refused, on /user/queue/errors.
+ */
+public record BetRejectedDto(
+        String destination, // Where the bet was sent, e.g. "/app/roulette/bet"
+        String message
+) {}
@@ -6,5 +6,7 @@ public record BetRequest(
         BigDecimal amount,
         String betType,
         String betValue,
-        String displayName
+        String displayName,
+        BigDecimal autoCashout, // Cosmic Cashout only: multiplier at which the bet is cashed out automatically, e.g. 2.00
+        String idempotencyKey // Cosmic Cashout only: a resent bet with the same key is placed once (REST uses the Idempotency-Key header)
 ) {}
\ No newline at end of file
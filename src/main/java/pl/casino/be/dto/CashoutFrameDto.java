@@ -0,0 +1,18 @@
+package pl.casino.be.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One coalesced Cosmic Cashout broadcast frame. Fields that did not change since the previous frame are omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record CashoutFrameDto(
+        long frame,
+        String state, // Only present when the game state changed
+        BigDecimal multiplier,
+        BigDecimal crashPoint, // Only present in the frame right after a crash; absent if the round was called off
+        List<PlayerListDeltaDto> players
+) {}
@@ -7,5 +7,6 @@ public record CosmicCashoutStateDto(
         String gameState,
         BigDecimal currentMultiplier,
         List<PlayerStateDto> playersInRound,
+        long playerListSeq,
         List<BigDecimal> crashHistory
 ) {}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package pl.casino.be.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FairChainStateDto(
+        String game,
+        String salt, // HMAC message every outcome is derived with
+        String commitment, // SHA-256 of the first hash of the segment in use
+        String nextCommitment, // Commitment of the following segment, once prepared
+        List<FairDrawDto> revealed // Newest first
+) {}
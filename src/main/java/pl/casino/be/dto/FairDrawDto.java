@@ -0,0 +1,8 @@
+package pl.casino.be.dto;
+
+public record FairDrawDto(
+        long sequence,
+        String hash, // Revealed chain hash; SHA-256 of it is the hash of the previous draw
+        String result, // Outcome as the game shows it, e.g. "1.49x" or "17"
+        boolean voided // The round was called off, so the outcome was never applied
+) {}
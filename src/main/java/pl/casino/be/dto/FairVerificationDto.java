@@ -0,0 +1,9 @@
+package pl.casino.be.dto;
+
+public record FairVerificationDto(
+        String game,
+        String hash,
+        String previousHash, // SHA-256 of the hash: the previous draw's hash, or the segment commitment
+        int outcome,
+        String result
+) {}
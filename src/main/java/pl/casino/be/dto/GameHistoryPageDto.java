@@ -0,0 +1,10 @@
+package pl.casino.be.dto;
+
+import pl.casino.be.model.GameHistory;
+
+import java.util.List;
+
+public record GameHistoryPageDto(
+        List<GameHistory> items,
+        String nextCursor // null on the last page
+) {}
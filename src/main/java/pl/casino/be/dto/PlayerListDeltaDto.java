@@ -0,0 +1,17 @@
+package pl.casino.be.dto;
+
+/**
+ * Single change to the Cosmic Cashout player list.
+ * Clients apply deltas in {@code seq} order on top of a {@link PlayerListSnapshotDto}; a gap in the sequence
+ * means a delta was missed and the client should fetch a new snapshot. Both ops carry the full player
+ * state, so they can be applied as upserts keyed by {@code seat}. Players leave the list only when it is reset
+ * by an empty snapshot after the round.
+ */
+public record PlayerListDeltaDto(
+        long seq,
+        Op op,
+        int seat,
+        PlayerStateDto player
+) {
+    public enum Op { ADD, UPDATE }
+}
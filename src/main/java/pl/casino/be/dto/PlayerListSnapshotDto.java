@@ -0,0 +1,11 @@
+package pl.casino.be.dto;
+
+import java.util.List;
+
+/**
+ * Full Cosmic Cashout player list as of the delta with sequence number {@code seq}.
+ */
+public record PlayerListSnapshotDto(
+        long seq,
+        List<PlayerStateDto> players
+) {}
@@ -11,6 +11,7 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PlayerStateDto {
+    private int seat; // Stable position of the player within the round, used as the key of list deltas
     private String username;
     private BigDecimal betAmount;
     private PlayerStatus status;
@@ -0,0 +1,9 @@
+package pl.casino.be.dto;
+
+import java.util.List;
+
+public record RouletteSlipRequest(
+        List<BetRequest> bets, // All bets are settled against the same spin
+        String displayName, // Shown to other players at the shared table
+        String idempotencyKey // Shared table only: a resent slip with the same key is placed once (REST uses the Idempotency-Key header)
+) {}
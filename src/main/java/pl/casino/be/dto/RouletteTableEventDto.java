@@ -0,0 +1,24 @@
+package pl.casino.be.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Update of the shared roulette table on /topic/roulette/table.
+ * BET carries the updated entry of the player who just bet; RESULT closes the round with the winning
+ * number, its provably fair hash and every player's payout, and announces when the next round closes.
+ * VOID closes a round that could not be settled instead: every stake is returned and the voided hash is published.
+ * Events of a round that a client already saw the RESULT of can be ignored.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RouletteTableEventDto(
+        Type type,
+        long round,
+        long closesAt, // Epoch millis when betting closes for the current round
+        Integer winningNumber,
+        String fairHash, // Revealed provably fair hash the winning number was derived from, or the voided one
+        List<RouletteTablePlayerDto> players
+) {
+    public enum Type { BET, RESULT, VOID }
+}
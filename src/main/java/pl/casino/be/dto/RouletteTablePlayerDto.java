@@ -0,0 +1,13 @@
+package pl.casino.be.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RouletteTablePlayerDto(
+        String displayName,
+        int bets,
+        BigDecimal stake, // Total staked by the player in the round so far
+        BigDecimal payout // Set once the round is settled
+) {}
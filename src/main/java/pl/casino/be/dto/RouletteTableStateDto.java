@@ -0,0 +1,10 @@
+package pl.casino.be.dto;
+
+import java.util.List;
+
+public record RouletteTableStateDto(
+        long round,
+        long closesAt, // Epoch millis when betting closes for this round
+        List<RouletteTablePlayerDto> players,
+        List<Integer> recentNumbers // Newest first
+) {}
@@ -0,0 +1,11 @@
+package pl.casino.be.exception;
+
+/**
+ * The ledger applied a move in memory and queued it for storage, but could not sync it to the local journal.
+ * The move stands and will still be flushed; only its crash-safe copy is missing.
+ */
+public class LedgerSyncException extends RuntimeException {
+    public LedgerSyncException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package pl.casino.be.exception;
+
+public class StorageException extends RuntimeException {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,156 @@
+package pl.casino.be.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters recorded by the wallet, storage and game paths.
+ * All meters are registered up front, so recording is a field access plus an adder update.
+ * Per-game and per-transaction-type totals are exported by {@link pl.casino.be.service.CasinoStatisticsService}.
+ */
+@Component
+public class CasinoMetrics {
+
+    private final Timer ledgerFlush;
+    private final Counter ledgerFlushFailures;
+    private final Counter ledgerRecordsQuarantined;
+    private final Timer historyWrite;
+    private final Counter historyWriteRetries;
+    private final Counter insufficientFunds;
+    private final Timer cashoutRoundDuration;
+    private final DistributionSummary cashoutRoundPlayers;
+    private final Timer cashoutLatency;
+    private final Counter staleMessagesDropped;
+    private final Counter slowConsumersDisconnected;
+    private final Map<String, Timer> connectAuthentication = new HashMap<>();
+    private final Timer tokenVerified;
+    private final Timer tokenRejected;
+    private final Counter idempotentReplays;
+
+    public CasinoMetrics(MeterRegistry registry) {
+        ledgerFlush = Timer.builder("casino.storage.write")
+                .description("Latency of a storage write batch")
+                .tag("store", "ledger")
+                .publishPercentileHistogram()
+                .register(registry);
+        ledgerFlushFailures = Counter.builder("casino.storage.write.failures")
+                .description("Storage write batches that failed and were retried")
+                .tag("store", "ledger")
+                .register(registry);
+        ledgerRecordsQuarantined = Counter.builder("casino.ledger.quarantined")
+                .description("Ledger records set aside because storage kept refusing them")
+                .register(registry);
+        historyWrite = Timer.builder("casino.storage.write")
+                .description("Latency of a storage write batch")
+                .tag("store", "game_history")
+                .publishPercentileHistogram()
+                .register(registry);
+        historyWriteRetries = Counter.builder("casino.storage.write.failures")
+                .description("Storage write batches that failed and were retried")
+                .tag("store", "game_history")
+                .register(registry);
+        insufficientFunds = Counter.builder("casino.wallet.insufficient_funds")
+                .description("Balance moves rejected because of insufficient funds")
+                .register(registry);
+        cashoutRoundDuration = Timer.builder("casino.cashout.round.duration")
+                .description("Time from round start to crash")
+                .register(registry);
+        cashoutRoundPlayers = DistributionSummary.builder("casino.cashout.round.players")
+                .description("Players with a bet in a finished round")
+                .register(registry);
+        cashoutLatency = Timer.builder("casino.cashout.latency")
+                .description("Time from the last round tick until a cash-out is settled")
+                .publishPercentileHistogram()
+                .register(registry);
+        staleMessagesDropped = Counter.builder("casino.stomp.outbound.dropped")
+                .description("Superseded messages dropped because the client was too slow to take them")
+                .register(registry);
+        slowConsumersDisconnected = Counter.builder("casino.stomp.slow_consumers.disconnected")
+                .description("WebSocket sessions closed because they fell behind the broadcasts")
+                .register(registry);
+        for (String result : List.of("cached", "verified", "failed", "rejected", "timeout")) {
+            connectAuthentication.put(result, Timer.builder("casino.auth.connect.latency")
+                    .description("Time to authenticate a STOMP CONNECT")
+                    .tag("result", result)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        tokenVerified = Timer.builder("casino.auth.token.verify")
+                .description("Time to verify an ID token that is not cached yet")
+                .tag("result", "valid")
+                .publishPercentileHistogram()
+                .register(registry);
+        tokenRejected = Timer.builder("casino.auth.token.verify")
+                .description("Time to verify an ID token that is not cached yet")
+                .tag("result", "invalid")
+                .publishPercentileHistogram()
+                .register(registry);
+        idempotentReplays = Counter.builder("casino.idempotency.replayed")
+                .description("Retried requests answered with the result of the original request")
+                .register(registry);
+    }
+
+    public void ledgerFlush(long nanos) {
+        ledgerFlush.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ledgerFlushFailed() {
+        ledgerFlushFailures.increment();
+    }
+
+    public void ledgerRecordQuarantined() {
+        ledgerRecordsQuarantined.increment();
+    }
+
+    public void historyWrite(long nanos) {
+        historyWrite.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void historyWriteFailed() {
+        historyWriteRetries.increment();
+    }
+
+    public void insufficientFunds() {
+        insufficientFunds.increment();
+    }
+
+    public void cashoutRound(long durationNanos, int players) {
+        cashoutRoundDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+        cashoutRoundPlayers.record(players);
+    }
+
+    public void cashoutLatency(long nanos) {
+        cashoutLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void staleMessageDropped() {
+        staleMessagesDropped.increment();
+    }
+
+    public void slowConsumerDisconnected() {
+        slowConsumersDisconnected.increment();
+    }
+
+    /**
+     * @param result One of cached, verified, failed (invalid token) or rejected (overloaded or timed out).
+     */
+    public void connectAuthentication(String result, long nanos) {
+        connectAuthentication.get(result).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tokenVerification(boolean valid, long nanos) {
+        (valid ? tokenVerified : tokenRejected).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void idempotentReplay() {
+        idempotentReplays.increment();
+    }
+}
@@ -17,5 +17,7 @@ public class GameHistory {
     private BigDecimal betAmount;
     private BigDecimal winAmount;
     private String result; // e.g. "32" for roulette or "2.5" for cosmic cashout
+    private String fairHash; // Provably fair chain hash that decided a roulette spin, see ProvablyFairService
+    private boolean refunded; // The round was called off and the stake returned; winAmount is zero and statistics skip the game
     private Date timestamp;
 }
\ No newline at end of file
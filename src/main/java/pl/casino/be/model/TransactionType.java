@@ -1,3 +1,15 @@
 package pl.casino.be.model;
 
-public enum TransactionType { DEPOSIT, WITHDRAWAL, BET, WIN }
\ No newline at end of file
+import java.math.BigDecimal;
+
+public enum TransactionType {
+    DEPOSIT, WITHDRAWAL, BET, WIN, REFUND; // REFUND returns the stake of a round that was called off
+
+    /**
+     * @param amount Amount of a transaction of this type (positive).
+     * @return The amount as it changes the balance: added for deposits, wins and refunds, subtracted for withdrawals and bets.
+     */
+    public BigDecimal signed(BigDecimal amount) {
+        return this == DEPOSIT || this == WIN || this == REFUND ? amount : amount.negate();
+    }
+}
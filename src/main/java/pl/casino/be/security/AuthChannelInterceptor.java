@@ -1,32 +1,73 @@
 package pl.casino.be.security;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import pl.casino.be.metrics.CasinoMetrics;
 
-import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Authenticates STOMP CONNECT frames with the same verified-token cache as HTTP requests.
+ * Cached tokens are accepted in place. Other tokens are verified on a separate executor without holding the
+ * thread that received the frame: the CONNECT is held back and sent on once the token is verified. A CONNECT
+ * over the concurrency or rate cap is refused at once with an ERROR frame, as is one whose verification times out.
+ * Clients must wait for CONNECTED before sending other frames, as STOMP clients do.
+ */
 @Component
 @Slf4j
 public class AuthChannelInterceptor implements ChannelInterceptor {
 
-    private final FirebaseAuth firebaseAuth;
+    // Marks a held-back CONNECT whose token was verified, so it passes through when sent on
+    private static final String VERIFIED_HEADER = "casino.connect.verified";
 
-    public AuthChannelInterceptor(FirebaseAuth firebaseAuth) {
-        this.firebaseAuth = firebaseAuth;
+    private final TokenAuthenticator tokenAuthenticator;
+    private final CasinoMetrics metrics;
+    private final MessageChannel clientOutboundChannel;
+    private final ExecutorService verifier = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore verifications;
+    private final long timeoutMillis;
+    // Sessions whose CONNECT is held back; a session that closes meanwhile is dropped, so its CONNECT is not sent on
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Token bucket for verifications per second, guarded by this
+    private final double verificationsPerSecond;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    public AuthChannelInterceptor(TokenAuthenticator tokenAuthenticator, CasinoMetrics metrics,
+                                  @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                  @Value("${casino.auth.connect.max-concurrent-verifications:64}") int maxConcurrentVerifications,
+                                  @Value("${casino.auth.connect.max-verifications-per-second:200}") double verificationsPerSecond,
+                                  @Value("${casino.auth.connect.timeout-ms:3000}") long timeoutMillis) {
+        this.tokenAuthenticator = tokenAuthenticator;
+        this.metrics = metrics;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.verifications = new Semaphore(maxConcurrentVerifications);
+        this.verificationsPerSecond = verificationsPerSecond;
+        this.tokens = verificationsPerSecond;
+        this.timeoutMillis = timeoutMillis;
     }
 
     @Override
@@ -34,40 +75,108 @@ public class AuthChannelInterceptor implements ChannelInterceptor {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
 
         // This logic runs only for the initial CONNECT message from the client
-        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
-            // "nativeHeaders" contains headers from the client's STOMP connect call
-            List<String> authorization = accessor.getNativeHeader("Authorization");
-            log.debug("Authorization header: {}", authorization);
-
-            if (authorization == null || authorization.isEmpty()) {
-                return message; // Or throw an exception if you want to force auth
-            }
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())
+                || accessor.getHeader(VERIFIED_HEADER) != null) {
+            return message;
+        }
+        // "nativeHeaders" contains headers from the client's STOMP connect call
+        List<String> authorization = accessor.getNativeHeader("Authorization");
+        if (authorization == null || authorization.isEmpty()) {
+            return message; // Or throw an exception if you want to force auth
+        }
+        String token = authorization.getFirst();
+        if (token == null || !token.startsWith("Bearer ")) {
+            return message;
+        }
 
-            String token = authorization.getFirst();
-            if (token != null && token.startsWith("Bearer ")) {
-                String tokenStr = token.substring(7);
-                try {
-                    // Verify the token
-                    FirebaseToken decodedToken = firebaseAuth.verifyIdToken(tokenStr);
-                    String uid = decodedToken.getUid();
+        long start = System.nanoTime();
+        Optional<VerifiedToken> cached = tokenAuthenticator.cached(token.substring(7));
+        if (cached.isPresent()) {
+            // Set the user for this WebSocket session
+            accessor.setUser(cached.get().toAuthentication());
+            metrics.connectAuthentication("cached", System.nanoTime() - start);
+            return message;
+        }
+        if (!takeRateToken() || !verifications.tryAcquire()) {
+            metrics.connectAuthentication("rejected", System.nanoTime() - start);
+            refuse(accessor.getSessionId(), "Too many WebSocket authentications, try again later");
+            return null;
+        }
+        verifyAndSend(message, accessor, channel, token.substring(7), start);
+        // Held back until the token is verified
+        return null;
+    }
 
-                    // Get roles from custom claims
-                    Map<String, Object> claims = decodedToken.getClaims();
-                    String role = (String) claims.getOrDefault("role", "USER");
-                    List<GrantedAuthority> authorities = new ArrayList<>();
-                    authorities.add(new SimpleGrantedAuthority(MessageFormat.format("ROLE_{0}", role)));
+    private void verifyAndSend(Message<?> message, StompHeaderAccessor accessor, MessageChannel channel, String token, long start) {
+        String sessionId = accessor.getSessionId();
+        pending.add(sessionId);
+        CompletableFuture.supplyAsync(() -> {
+                    // The permit is held until Firebase answers, even if the CONNECT gave up waiting
+                    try {
+                        return tokenAuthenticator.authenticate(token);
+                    } finally {
+                        verifications.release();
+                    }
+                }, verifier)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((verified, failure) -> {
+                    if (!pending.remove(sessionId)) {
+                        return;
+                    }
+                    String result = "failed";
+                    try {
+                        if (failure instanceof TimeoutException) {
+                            result = "timeout";
+                            refuse(sessionId, "WebSocket authentication timed out");
+                            return;
+                        }
+                        if (failure != null) {
+                            log.error("WebSocket authentication failed: {}", failure.getMessage());
+                        } else {
+                            accessor.setUser(verified.toAuthentication());
+                            log.debug("Authenticated WebSocket user: {}", verified.uid());
+                            result = "verified";
+                        }
+                        accessor.setHeader(VERIFIED_HEADER, Boolean.TRUE);
+                        channel.send(message);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to pass on WebSocket CONNECT of session {}: {}", sessionId, e.getMessage());
+                        refuse(sessionId, "WebSocket authentication failed");
+                    } finally {
+                        metrics.connectAuthentication(result, System.nanoTime() - start);
+                    }
+                }, verifier);
+    }
 
-                    // Create the Spring Security Authentication object
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(uid, null, authorities);
+    /**
+     * Answers the session with an ERROR frame, which closes it; the client reconnects.
+     */
+    private void refuse(String sessionId, String reason) {
+        StompHeaderAccessor error = StompHeaderAccessor.create(StompCommand.ERROR);
+        error.setSessionId(sessionId);
+        error.setMessage(reason);
+        error.setLeaveMutable(true);
+        clientOutboundChannel.send(MessageBuilder.createMessage(new byte[0], error.getMessageHeaders()));
+    }
 
-                    // Set the user for this WebSocket session
-                    accessor.setUser(authentication);
-                    log.info("Authenticated WebSocket user: {}", uid);
-                } catch (Exception e) {
-                    log.error("WebSocket authentication failed: {}", e.getMessage());
-                }
-            }
+    private synchronized boolean takeRateToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(verificationsPerSecond, tokens + (now - refilledAt) * verificationsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
         }
-        return message;
+        tokens--;
+        return true;
+    }
+
+    @EventListener
+    public void sessionClosed(SessionDisconnectEvent event) {
+        pending.remove(event.getSessionId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        verifier.shutdownNow();
     }
-}
\ No newline at end of file
+}
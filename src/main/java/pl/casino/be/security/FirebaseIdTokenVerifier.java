@@ -0,0 +1,30 @@
+package pl.casino.be.security;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.InvalidTokenException;
+
+/**
+ * Verifies ID tokens with the Firebase Admin SDK, which fetches and caches Google's public keys itself.
+ */
+@Component
+@ConditionalOnProperty(name = "casino.auth.verifier", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseIdTokenVerifier implements IdTokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+
+    public FirebaseIdTokenVerifier(FirebaseAuth firebaseAuth) {
+        this.firebaseAuth = firebaseAuth;
+    }
+
+    @Override
+    public VerifiedToken verify(String token) {
+        try {
+            return VerifiedToken.of(firebaseAuth.verifyIdToken(token));
+        } catch (FirebaseAuthException e) {
+            throw new InvalidTokenException(e.getMessage(), e);
+        }
+    }
+}
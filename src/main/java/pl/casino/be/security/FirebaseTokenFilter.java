@@ -1,35 +1,25 @@
 package pl.casino.be.security;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import pl.casino.be.service.UserService;
+import pl.casino.be.exception.StorageException;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 
 @Component
 @Slf4j
 public class FirebaseTokenFilter extends OncePerRequestFilter {
 
-    private final FirebaseAuth firebaseAuth;
-    private final UserService userService;
+    private final TokenAuthenticator tokenAuthenticator;
 
-    public FirebaseTokenFilter(FirebaseAuth firebaseAuth, UserService userService) {
-        this.firebaseAuth = firebaseAuth;
-        this.userService = userService;
+    public FirebaseTokenFilter(TokenAuthenticator tokenAuthenticator) {
+        this.tokenAuthenticator = tokenAuthenticator;
     }
 
     @Override
@@ -45,20 +35,16 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
 
         String tokenStr = header.substring(7);
         try {
-            FirebaseToken decodedToken = firebaseAuth.verifyIdToken(tokenStr);
-
-            userService.findOrCreateUser(decodedToken);
-
-            String uid = decodedToken.getUid();
-            Map<String, Object> claims = decodedToken.getClaims();
-            String role = (String) claims.getOrDefault("role", "USER");
-
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-
-            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(uid, null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+            // Tokens seen before skip both the signature check and the user lookup until they expire
+            VerifiedToken verified = tokenAuthenticator.authenticate(tokenStr);
+            SecurityContextHolder.getContext().setAuthentication(verified.toAuthentication());
 
+        } catch (StorageException e) {
+            // The token may well be valid; the client should retry rather than sign in again
+            log.error("User profile lookup failed during authentication", e);
+            SecurityContextHolder.clearContext();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "User profile unavailable");
+            return;
         } catch (Exception e) {
             log.error("Firebase token verification or user creation failed", e);
             SecurityContextHolder.clearContext();
@@ -0,0 +1,117 @@
+package pl.casino.be.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Public keys Firebase signs ID tokens with, published as X.509 certificates keyed by key ID.
+ * The set is fetched at startup and refreshed in the background before the Cache-Control max-age of
+ * the last response runs out, so token verification never waits for the network. A failed refresh keeps
+ * the previous keys and is retried sooner. The URL may point to a local file (file:...) to run offline with a test key set.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "casino.auth.verifier", havingValue = "local")
+public class GooglePublicKeySource implements PublicKeySource {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService refresher =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("id-token-keys").daemon().factory());
+    private final URI certificatesUri;
+    private final Duration defaultRefresh;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+
+    public GooglePublicKeySource(ObjectMapper objectMapper,
+                                 @Value("${casino.auth.local.certificates-url:https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com}") String certificatesUrl,
+                                 @Value("${casino.auth.local.refresh-ms:3600000}") long defaultRefreshMillis) {
+        this.objectMapper = objectMapper;
+        this.certificatesUri = URI.create(certificatesUrl);
+        this.defaultRefresh = Duration.ofMillis(defaultRefreshMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh();
+    }
+
+    @Override
+    public Optional<PublicKey> get(String keyId) {
+        return Optional.ofNullable(keys.get(keyId));
+    }
+
+    private void refresh() {
+        Duration next;
+        try {
+            next = fetch();
+        } catch (IOException | CertificateException | RuntimeException e) {
+            log.warn("Failed to refresh ID token public keys from {} ({} keys kept): {}", certificatesUri, keys.size(), e.getMessage());
+            next = RETRY_DELAY;
+        }
+        refresher.schedule(this::refresh, next.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Delay until the next refresh: half of the max-age, so keys are renewed well before they go stale.
+     */
+    private Duration fetch() throws IOException, CertificateException {
+        URLConnection connection = certificatesUri.toURL().openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        Map<String, String> certificates;
+        try (InputStream in = connection.getInputStream()) {
+            certificates = objectMapper.readValue(in, new TypeReference<>() {});
+        }
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        Map<String, PublicKey> fetched = new HashMap<>();
+        for (Map.Entry<String, String> certificate : certificates.entrySet()) {
+            byte[] pem = certificate.getValue().getBytes(StandardCharsets.US_ASCII);
+            fetched.put(certificate.getKey(), factory.generateCertificate(new ByteArrayInputStream(pem)).getPublicKey());
+        }
+        if (fetched.isEmpty()) {
+            throw new CertificateException("No certificates in response");
+        }
+        keys = Map.copyOf(fetched);
+        log.info("Loaded {} ID token public keys from {}.", fetched.size(), certificatesUri);
+
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        Matcher maxAge = cacheControl != null ? MAX_AGE.matcher(cacheControl) : null;
+        if (maxAge != null && maxAge.find()) {
+            return Duration.ofSeconds(Math.max(Long.parseLong(maxAge.group(1)) / 2, RETRY_DELAY.toSeconds()));
+        }
+        return defaultRefresh;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package pl.casino.be.security;
+
+import pl.casino.be.exception.InvalidTokenException;
+
+/**
+ * Checks the signature and claims of a Firebase ID token. Selected with {@code casino.auth.verifier}:
+ * "firebase" delegates to the Firebase Admin SDK, "local" verifies against a prefetched key set.
+ */
+public interface IdTokenVerifier {
+
+    /**
+     * @param token Raw ID token.
+     * @return The verified token.
+     * @throws InvalidTokenException If the token is malformed, badly signed, expired or issued for another project.
+     */
+    VerifiedToken verify(String token);
+}
@@ -0,0 +1,112 @@
+package pl.casino.be.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.InvalidTokenException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * Verifies Firebase ID tokens in process: RS256 signature against {@link PublicKeySource}, then the
+ * claims Firebase documents for ID tokens (audience and issuer of the project, subject, expiry, issue and auth time).
+ * Revocation is not checked, just like the Firebase Admin SDK without {@code checkRevoked}.
+ */
+@Component
+@ConditionalOnProperty(name = "casino.auth.verifier", havingValue = "local")
+public class LocalIdTokenVerifier implements IdTokenVerifier {
+
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    private final PublicKeySource keys;
+    private final ObjectMapper objectMapper;
+    private final String projectId;
+    private final String issuer;
+    private final long clockSkewSeconds;
+
+    public LocalIdTokenVerifier(PublicKeySource keys, ObjectMapper objectMapper,
+                                @Value("${casino.auth.local.project-id:}") String projectId,
+                                @Value("${casino.auth.local.clock-skew-seconds:30}") long clockSkewSeconds) {
+        if (projectId.isBlank()) {
+            throw new IllegalStateException("casino.auth.local.project-id must be set for local token verification.");
+        }
+        this.keys = keys;
+        this.objectMapper = objectMapper;
+        this.projectId = projectId;
+        this.issuer = ISSUER_PREFIX + projectId;
+        this.clockSkewSeconds = clockSkewSeconds;
+    }
+
+    @Override
+    public VerifiedToken verify(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = token.indexOf('.', headerEnd + 1);
+        if (headerEnd < 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new InvalidTokenException("ID token is not a JWT.");
+        }
+        JsonNode header = decode(token.substring(0, headerEnd));
+        if (!"RS256".equals(header.path("alg").textValue())) {
+            throw new InvalidTokenException("ID token has an unexpected algorithm: " + header.path("alg"));
+        }
+        String keyId = header.path("kid").textValue();
+        PublicKey key = keyId == null ? null : keys.get(keyId).orElse(null);
+        if (key == null) {
+            throw new InvalidTokenException("ID token is signed with an unknown key: " + keyId);
+        }
+        checkSignature(token, payloadEnd, key);
+
+        JsonNode claims = decode(token.substring(headerEnd + 1, payloadEnd));
+        long now = System.currentTimeMillis() / 1000;
+        if (!projectId.equals(claims.path("aud").textValue())) {
+            throw new InvalidTokenException("ID token has an incorrect audience: " + claims.path("aud"));
+        }
+        if (!issuer.equals(claims.path("iss").textValue())) {
+            throw new InvalidTokenException("ID token has an incorrect issuer: " + claims.path("iss"));
+        }
+        String subject = claims.path("sub").textValue();
+        if (subject == null || subject.isEmpty() || subject.length() > 128) {
+            throw new InvalidTokenException("ID token has an invalid subject.");
+        }
+        long expiresAt = claims.path("exp").asLong(0);
+        if (expiresAt + clockSkewSeconds <= now) {
+            throw new InvalidTokenException("ID token has expired.");
+        }
+        // A missing iat or auth_time reads as far in the future, so such a token is refused
+        if (claims.path("iat").asLong(Long.MAX_VALUE) > now + clockSkewSeconds
+                || claims.path("auth_time").asLong(Long.MAX_VALUE) > now + clockSkewSeconds) {
+            throw new InvalidTokenException("ID token is issued in the future.");
+        }
+        return new VerifiedToken(subject, claims.path("role").asText("USER"),
+                claims.path("email").textValue(), claims.path("name").textValue(), expiresAt);
+    }
+
+    private static void checkSignature(String token, int payloadEnd, PublicKey key) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update(token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII));
+            if (signature.verify(BASE64_URL.decode(token.substring(payloadEnd + 1)))) {
+                return;
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new InvalidTokenException("ID token signature could not be checked.", e);
+        }
+        throw new InvalidTokenException("ID token has an invalid signature.");
+    }
+
+    private JsonNode decode(String part) {
+        try {
+            return objectMapper.readTree(BASE64_URL.decode(part));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("ID token is not a JWT.", e);
+        }
+    }
+}
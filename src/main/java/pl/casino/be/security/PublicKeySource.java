@@ -0,0 +1,17 @@
+package pl.casino.be.security;
+
+import java.security.PublicKey;
+import java.util.Optional;
+
+/**
+ * Key set the local verifier checks token signatures against. Lookups must not do any I/O.
+ */
+@FunctionalInterface
+public interface PublicKeySource {
+
+    /**
+     * @param keyId Value of the "kid" token header.
+     * @return The key, if it is part of the current key set.
+     */
+    Optional<PublicKey> get(String keyId);
+}
@@ -0,0 +1,65 @@
+package pl.casino.be.security;
+
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.InvalidTokenException;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.service.UserService;
+
+import java.util.Optional;
+
+/**
+ * Turns a bearer ID token into a {@link VerifiedToken}, shared by HTTP and WebSocket authentication.
+ * A token is verified by the configured {@link IdTokenVerifier} and its user provisioned once, then served from {@link VerifiedTokenCache}
+ * until it expires. A token is cached only once its user exists, so a failed provisioning is retried on the next request.
+ */
+@Component
+public class TokenAuthenticator {
+
+    private final IdTokenVerifier verifier;
+    private final UserService userService;
+    private final VerifiedTokenCache tokenCache;
+    private final CasinoMetrics metrics;
+
+    public TokenAuthenticator(IdTokenVerifier verifier, UserService userService, VerifiedTokenCache tokenCache,
+                              CasinoMetrics metrics) {
+        this.verifier = verifier;
+        this.userService = userService;
+        this.tokenCache = tokenCache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param token Raw ID token.
+     * @return The verification result, if the token was verified before and has not expired yet.
+     */
+    public Optional<VerifiedToken> cached(String token) {
+        return tokenCache.get(token);
+    }
+
+    /**
+     * Verifies the token unless it is cached, creating the user profile on first sight.
+     * @param token Raw ID token.
+     * @return The verification result.
+     * @throws InvalidTokenException If the token is invalid or expired.
+     * @throws StorageException If the user profile could not be looked up or created.
+     */
+    public VerifiedToken authenticate(String token) {
+        Optional<VerifiedToken> cached = tokenCache.get(token);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long start = System.nanoTime();
+        VerifiedToken verified;
+        try {
+            verified = verifier.verify(token);
+        } catch (InvalidTokenException e) {
+            metrics.tokenVerification(false, System.nanoTime() - start);
+            throw e;
+        }
+        metrics.tokenVerification(true, System.nanoTime() - start);
+        userService.findOrCreateUser(verified);
+        tokenCache.put(token, verified);
+        return verified;
+    }
+}
@@ -0,0 +1,32 @@
+package pl.casino.be.security;
+
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The parts of a verified Firebase ID token the backend needs after verification.
+ * @param uid Identifier of the user.
+ * @param role Value of the "role" custom claim, USER if absent.
+ * @param email E-mail of the user, may be null.
+ * @param name Display name of the user, may be null.
+ * @param expiresAt Expiry of the token in epoch seconds ("exp" claim).
+ */
+public record VerifiedToken(String uid, String role, String email, String name, long expiresAt) {
+
+    public static VerifiedToken of(FirebaseToken token) {
+        Object role = token.getClaims().getOrDefault("role", "USER");
+        Object exp = token.getClaims().get("exp");
+        long expiresAt = exp instanceof Number number ? number.longValue() : 0L;
+        return new VerifiedToken(token.getUid(), String.valueOf(role), token.getEmail(), token.getName(), expiresAt);
+    }
+
+    /**
+     * @return Spring Security authentication with the UID as principal and the role as the only authority.
+     */
+    public UsernamePasswordAuthenticationToken toAuthentication() {
+        return new UsernamePasswordAuthenticationToken(uid, null, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
+}
@@ -0,0 +1,87 @@
+package pl.casino.be.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of already verified ID tokens, so a token is checked against Firebase once and then
+ * trusted until its own "exp". Entries are keyed by a SHA-256 hash, raw tokens are never kept in memory.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public VerifiedTokenCache(@Value("${casino.auth.token-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param token Raw ID token.
+     * @return The verification result, if the token was verified before and has not expired yet.
+     */
+    public Optional<VerifiedToken> get(String token) {
+        String key = hash(token);
+        VerifiedToken verified = entries.get(key);
+        if (verified == null) {
+            return Optional.empty();
+        }
+        if (isExpired(verified, nowSeconds())) {
+            entries.remove(key, verified);
+            return Optional.empty();
+        }
+        return Optional.of(verified);
+    }
+
+    public void put(String token, VerifiedToken verified) {
+        if (isExpired(verified, nowSeconds())) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(hash(token), verified);
+    }
+
+    /**
+     * Drops expired entries; if the cache is still full, drops arbitrary entries until there is room again.
+     * Evicted tokens are simply verified again on their next use.
+     */
+    private void evict() {
+        long now = nowSeconds();
+        entries.values().removeIf(verified -> isExpired(verified, now));
+        Iterator<String> keys = entries.keySet().iterator();
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static boolean isExpired(VerifiedToken verified, long nowSeconds) {
+        return verified.expiresAt() <= nowSeconds;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
@@ -1,48 +1,52 @@
 package pl.casino.be.service;
 
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import pl.casino.be.dto.*;
 import pl.casino.be.model.GameHistory;
 import pl.casino.be.model.Transaction;
-import pl.casino.be.model.User;
+import pl.casino.be.storage.GameHistoryRepository;
+import pl.casino.be.storage.TransactionRepository;
+import pl.casino.be.storage.UserRepository;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class AdminService {
 
-    private final Firestore firestore;
-    private final FirebaseAuth firebaseAuth;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final GameHistoryRepository gameHistoryRepository;
+    private final CasinoStatisticsService statisticsService;
+    private final UserDirectoryService userDirectoryService;
+    // Resolved on use: without a service account key only role changes are unavailable
+    private final ObjectProvider<FirebaseAuth> firebaseAuth;
 
-    public AdminService(Firestore firestore, FirebaseAuth firebaseAuth) {
-        this.firestore = firestore;
+    public AdminService(UserRepository userRepository, TransactionRepository transactionRepository,
+                        GameHistoryRepository gameHistoryRepository, CasinoStatisticsService statisticsService,
+                        UserDirectoryService userDirectoryService, ObjectProvider<FirebaseAuth> firebaseAuth) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.gameHistoryRepository = gameHistoryRepository;
+        this.statisticsService = statisticsService;
+        this.userDirectoryService = userDirectoryService;
         this.firebaseAuth = firebaseAuth;
     }
 
-    private Map<String, String> getUserMap() throws ExecutionException, InterruptedException {
-        return firestore.collection("users").get().get().toObjects(User.class).stream()
-                .collect(Collectors.toMap(User::getUid, User::getDisplayName, (existing, _) -> existing));
-    }
-
     /**
      * Downloads all transactions from the system, sorted from newest to oldest.
      * @return List of transaction DTOs.
      */
-    public List<AdminTransactionDto> getAllTransactions() throws ExecutionException, InterruptedException {
-        Map<String, String> userMap = getUserMap(); // Get the guest list
-        List<Transaction> transactions = firestore.collection("transactions")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(50) // Limit for performance
-                .get().get().toObjects(Transaction.class);
+    public List<AdminTransactionDto> getAllTransactions() {
+        List<Transaction> transactions = transactionRepository.findRecent(50); // Limit for performance
+        Map<String, String> userMap = userDirectoryService.resolve(
+                transactions.stream().map(Transaction::getUserId).collect(Collectors.toSet())); // Only the names we need
 
         // Map the raw data to the new DTO, adding the username
         return transactions.stream().map(tx -> new AdminTransactionDto(
@@ -58,12 +62,10 @@ public class AdminService {
      * Downloads all game histories from the system, sorted from newest to oldest.
      * @return List of game history DTOs.
      */
-    public List<AdminGameHistoryDto> getAllGameHistories() throws ExecutionException, InterruptedException {
-        Map<String, String> userMap = getUserMap(); // Get the guest list
-        List<GameHistory> games = firestore.collection("game_history")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(50) // Limit for performance
-                .get().get().toObjects(GameHistory.class);
+    public List<AdminGameHistoryDto> getAllGameHistories() {
+        List<GameHistory> games = gameHistoryRepository.findRecent(50); // Limit for performance
+        Map<String, String> userMap = userDirectoryService.resolve(
+                games.stream().map(GameHistory::getUserId).collect(Collectors.toSet())); // Only the names we need
 
         // Map the raw data to the new DTO, adding the username
         return games.stream().map(game -> new AdminGameHistoryDto(
@@ -83,28 +85,21 @@ public class AdminService {
      */
     public void setUserRoleToAdmin(String uid) throws FirebaseAuthException {
         Map<String, Object> claims = Map.of("role", "ADMIN");
-        firebaseAuth.setCustomUserClaims(uid, claims);
+        firebaseAuth.getObject().setCustomUserClaims(uid, claims);
         log.info("Promoted user {} to ADMIN", uid);
     }
 
     /**
-     * Downloads basic statistics about the casino system.
-     * @return Map containing totalUsers, totalTransactions, and totalGamesPlayed.
+     * Returns statistics about the casino system, served from in-memory counters.
+     * @return Map containing totalUsers, totalTransactions, totalGamesPlayed and turnover/GGR breakdowns.
      */
-    public Map<String, Object> getCasinoStatistics() throws ExecutionException, InterruptedException {
-        long totalUsers = firestore.collection("users").get().get().size();
-        long totalTransactions = firestore.collection("transactions").get().get().size();
-        long totalGamesPlayed = firestore.collection("game_history").get().get().size();
-
-        return Map.of(
-                "totalUsers", totalUsers,
-                "totalTransactions", totalTransactions,
-                "totalGamesPlayed", totalGamesPlayed
-        );
+    public Map<String, Object> getCasinoStatistics() {
+        return statisticsService.getStatistics();
     }
 
-    public List<UserProfileDto> getAllUsers() throws ExecutionException, InterruptedException {
-        return firestore.collection("users")
-                .get().get().toObjects(UserProfileDto.class);
+    public List<UserProfileDto> getAllUsers() {
+        return userRepository.findAll().stream()
+                .map(user -> new UserProfileDto(user.getUid(), user.getEmail(), user.getDisplayName(), user.getBalance()))
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
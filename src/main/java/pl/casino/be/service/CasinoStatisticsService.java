@@ -0,0 +1,213 @@
+package pl.casino.be.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.GameType;
+import pl.casino.be.model.TransactionType;
+import pl.casino.be.storage.GameHistoryRepository;
+import pl.casino.be.storage.TransactionRepository;
+import pl.casino.be.storage.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Casino-wide statistics maintained incrementally by the wallet and game write paths and served from memory.
+ * Document totals are periodically reconciled against aggregation count queries; money aggregates
+ * (turnover, GGR) cover what this node has processed since it started.
+ * The same adders are exported as Micrometer counters, so metrics add nothing to the write paths.
+ */
+@Slf4j
+@Service
+public class CasinoStatisticsService implements MeterBinder {
+
+    private static final int HOURS_KEPT = 24;
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final GameHistoryRepository gameHistoryRepository;
+
+    // Totals = last reconciled count + writes recorded since that reconciliation
+    private final Totals users = new Totals();
+    private final Totals transactions = new Totals();
+    private final Totals games = new Totals();
+
+    private final Map<TransactionType, Counter> transactionsByType = new EnumMap<>(TransactionType.class);
+    private final Map<GameType, GameCounter> gamesByType = new EnumMap<>(GameType.class);
+    private final ConcurrentSkipListMap<Long, GameCounter> gamesByHour = new ConcurrentSkipListMap<>();
+
+    public CasinoStatisticsService(UserRepository userRepository, TransactionRepository transactionRepository,
+                                   GameHistoryRepository gameHistoryRepository) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.gameHistoryRepository = gameHistoryRepository;
+        for (TransactionType type : TransactionType.values()) {
+            transactionsByType.put(type, new Counter());
+        }
+        for (GameType type : GameType.values()) {
+            gamesByType.put(type, new GameCounter());
+        }
+    }
+
+    public void recordUserCreated() {
+        users.sinceReconcile.increment();
+    }
+
+    /**
+     * @param type Transaction type.
+     * @param amount Signed or unsigned amount of the move, counted as an absolute value.
+     */
+    public void recordTransaction(TransactionType type, BigDecimal amount) {
+        transactions.sinceReconcile.increment();
+        Counter counter = transactionsByType.get(type);
+        counter.count.increment();
+        counter.cents.add(toCents(amount.abs()));
+    }
+
+    public void recordGame(GameHistory history) {
+        games.sinceReconcile.increment();
+        // A refunded round was never played out, so it adds neither wagers nor payouts
+        if (history.isRefunded()) {
+            return;
+        }
+        long betCents = toCents(history.getBetAmount());
+        long winCents = toCents(history.getWinAmount());
+        gamesByType.get(history.getGameType()).add(betCents, winCents);
+
+        long timestamp = history.getTimestamp() != null ? history.getTimestamp().getTime() : System.currentTimeMillis();
+        gamesByHour.computeIfAbsent(TimeUnit.MILLISECONDS.toHours(timestamp), _ -> new GameCounter()).add(betCents, winCents);
+    }
+
+    /**
+     * Resets document totals from aggregation count queries and drops hourly buckets older than a day.
+     */
+    @Scheduled(fixedDelayString = "${casino.statistics.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            users.reconcile(userRepository.count());
+            transactions.reconcile(transactionRepository.count());
+            games.reconcile(gameHistoryRepository.count());
+        } catch (StorageException e) {
+            log.warn("Statistics reconciliation failed, keeping incremental counters: {}", e.getMessage());
+        }
+        long oldestHour = TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis()) - HOURS_KEPT + 1;
+        gamesByHour.headMap(oldestHour).clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        transactionsByType.forEach((type, counter) -> {
+            FunctionCounter.builder("casino.transactions", counter.count, LongAdder::sum)
+                    .description("Balance moves processed by this node")
+                    .tag("type", type.name())
+                    .register(registry);
+            FunctionCounter.builder("casino.transactions.amount", counter.cents, cents -> cents.sum() / 100.0)
+                    .description("Amount moved by this node")
+                    .tag("type", type.name())
+                    .register(registry);
+        });
+        gamesByType.forEach((type, counter) -> {
+            FunctionCounter.builder("casino.games", counter.count, LongAdder::sum)
+                    .description("Games finished on this node")
+                    .tag("game", type.name())
+                    .register(registry);
+            FunctionCounter.builder("casino.games.bets", counter.betCents, cents -> cents.sum() / 100.0)
+                    .description("Amount wagered in finished games")
+                    .tag("game", type.name())
+                    .register(registry);
+            FunctionCounter.builder("casino.games.wins", counter.winCents, cents -> cents.sum() / 100.0)
+                    .description("Amount paid out in finished games")
+                    .tag("game", type.name())
+                    .register(registry);
+        });
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> transactionStats = new LinkedHashMap<>();
+        transactionsByType.forEach((type, counter) -> transactionStats.put(type.name(), Map.of(
+                "count", counter.count.sum(),
+                "amount", fromCents(counter.cents.sum())
+        )));
+
+        Map<String, Object> gameStats = new LinkedHashMap<>();
+        gamesByType.forEach((type, counter) -> gameStats.put(type.name(), counter.toMap()));
+
+        List<Map<String, Object>> hourly = new ArrayList<>();
+        gamesByHour.forEach((hour, counter) -> {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("hour", new Date(TimeUnit.HOURS.toMillis(hour)));
+            bucket.putAll(counter.toMap());
+            hourly.add(bucket);
+        });
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("totalUsers", users.value());
+        statistics.put("totalTransactions", transactions.value());
+        statistics.put("totalGamesPlayed", games.value());
+        statistics.put("transactionsByType", transactionStats);
+        statistics.put("gamesByType", gameStats);
+        statistics.put("gamesByHour", hourly);
+        return statistics;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static final class Totals {
+        private volatile long reconciled;
+        private final LongAdder sinceReconcile = new LongAdder();
+
+        private void reconcile(long count) {
+            // Writes recorded before the count query ran are part of the count (give or take write-behind lag)
+            long recorded = sinceReconcile.sumThenReset();
+            reconciled = count;
+            log.debug("Reconciled counter to {} ({} writes recorded since last run).", count, recorded);
+        }
+
+        private long value() {
+            return reconciled + sinceReconcile.sum();
+        }
+    }
+
+    private static final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cents = new LongAdder();
+    }
+
+    private static final class GameCounter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder betCents = new LongAdder();
+        private final LongAdder winCents = new LongAdder();
+
+        private void add(long bet, long win) {
+            count.increment();
+            betCents.add(bet);
+            winCents.add(win);
+        }
+
+        private Map<String, Object> toMap() {
+            long bets = betCents.sum();
+            long wins = winCents.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("games", count.sum());
+            map.put("turnover", fromCents(bets));
+            map.put("payouts", fromCents(wins));
+            map.put("ggr", fromCents(bets - wins));
+            return map;
+        }
+    }
+}
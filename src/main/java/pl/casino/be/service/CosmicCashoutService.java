@@ -1,199 +1,563 @@
 package pl.casino.be.service;
 
-import com.google.cloud.firestore.Firestore;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import pl.casino.be.dto.BetRejectedDto;
+import pl.casino.be.dto.CashoutFrameDto;
 import pl.casino.be.dto.CosmicCashoutStateDto;
+import pl.casino.be.dto.PlayerListDeltaDto;
+import pl.casino.be.dto.PlayerListSnapshotDto;
 import pl.casino.be.dto.PlayerStateDto;
+import pl.casino.be.exception.InsufficientFundsException;
+import pl.casino.be.metrics.CasinoMetrics;
 import pl.casino.be.model.GameHistory;
 import pl.casino.be.model.GameType;
 import pl.casino.be.model.PlayerStatus;
+import pl.casino.be.service.cashout.CashoutCommand;
+import pl.casino.be.service.cashout.CashoutFrameBroadcaster;
+import pl.casino.be.service.cashout.CashoutStateMirror;
+import pl.casino.be.service.cashout.FixedPointMultiplier;
+import pl.casino.be.service.cluster.ClusterNode;
+import pl.casino.be.service.fair.FairDraw;
+import pl.casino.be.service.fair.FairGame;
+import pl.casino.be.service.fair.ProvablyFairService;
+import pl.casino.be.service.history.GameHistoryWriter;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
 
+/**
+ * Cosmic Cashout round engine. Nothing here holds a global lock around wallet calls: the round phase is read
+ * lock-free, every player's outcome is decided by a CAS on their own state, and bets are admitted through a
+ * gate that the round start closes and drains, so a debited bet always makes it into the round it was placed for.
+ * <p>
+ * In a cluster only the leader node runs rounds. Followers relay their clients' bets and cash-outs to it,
+ * serve the broadcasts the leader fans out, and answer state requests from a mirror built from those broadcasts.
+ */
 @Service
 @Slf4j
 public class CosmicCashoutService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    // Set in betGate while betting is closed; the lower bits count bets that were admitted but not yet registered
+    private static final long BETTING_CLOSED = 1L << 62;
+    private static final long NO_AUTO_CASHOUT = Long.MAX_VALUE;
+    // Far above any crash point; keeps the target within the fixed-point range
+    private static final BigDecimal MAX_AUTO_CASHOUT = new BigDecimal("1000000.00");
+
+    private static final String PLAYERS_TOPIC = "/topic/cashout/players";
+    private static final String HISTORY_TOPIC = "/topic/cashout/history";
+    // Followers -> leader: relayed player actions
+    private static final String COMMAND_CHANNEL = "cashout.commands";
+    // Leader -> followers: full state for a node that (re)joins
+    private static final String STATE_CHANNEL = "cashout.state";
+
+    private final ClusterNode clusterNode;
+    private final CashoutFrameBroadcaster frameBroadcaster;
     private final WalletService walletService;
-    private final Firestore firestore;
+    private final GameHistoryWriter gameHistoryWriter;
+    private final CasinoMetrics metrics;
+    private final TaskScheduler taskScheduler;
+    private final ProvablyFairService provablyFairService;
     private final ExecutorService virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-    private volatile GameState gameState = GameState.WAITING;
-    private volatile BigDecimal currentMultiplier = BigDecimal.ONE;
+    private final long tickNanos;
+    private final Duration cooldown;
 
-    private final Map<String, PlayerStateDto> playersInRound = new ConcurrentHashMap<>();
-    private final Random random = new Random();
-    private final List<BigDecimal> crashHistory = new CopyOnWriteArrayList<>();
-
-
-    private final Object gameStateLock = new Object();
-    private static final String GAME_HISTORY_COLLECTION = "game_history";
+    private final AtomicReference<GameState> gameState = new AtomicReference<>(GameState.WAITING);
+    private final AtomicLong betGate = new AtomicLong();
+    // Published before the state turns RUNNING, so a reader that sees RUNNING sees the matching round
+    private volatile Round round = new Round(System.nanoTime(), FixedPointMultiplier.ONE, null);
+    private volatile long currentMultiplier = FixedPointMultiplier.ONE;
+    private volatile long lastTickNanos;
 
-    public CosmicCashoutService(SimpMessagingTemplate messagingTemplate, WalletService walletService, Firestore firestore) {
-        this.messagingTemplate = messagingTemplate;
+    private final Map<String, RoundPlayer> playersInRound = new ConcurrentHashMap<>();
+    private final List<BigDecimal> crashHistory = new CopyOnWriteArrayList<>();
+    private final CashoutStateMirror mirror = new CashoutStateMirror();
+
+    // Guards the player list sequence so deltas are numbered and published in the same order
+    private final Object playerListLock = new Object();
+    private long playerListSeq;
+    private int nextSeat;
+
+    public CosmicCashoutService(ClusterNode clusterNode, CashoutFrameBroadcaster frameBroadcaster,
+                                WalletService walletService, GameHistoryWriter gameHistoryWriter, CasinoMetrics metrics,
+                                TaskScheduler taskScheduler, ProvablyFairService provablyFairService,
+                                @Value("${casino.cashout.tick-ms:100}") long tickMillis,
+                                @Value("${casino.cashout.cooldown-ms:3000}") long cooldownMillis) {
+        this.clusterNode = clusterNode;
+        this.frameBroadcaster = frameBroadcaster;
         this.walletService = walletService;
-        this.firestore = firestore;
+        this.gameHistoryWriter = gameHistoryWriter;
+        this.metrics = metrics;
+        this.taskScheduler = taskScheduler;
+        this.provablyFairService = provablyFairService;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.cooldown = Duration.ofMillis(cooldownMillis);
+    }
+
+    /**
+     * Serves the leader's broadcasts to this node's clients and keeps the follower mirror up to date.
+     */
+    @PostConstruct
+    public void joinCluster() {
+        clusterNode.subscribeAsFollower(CashoutFrameBroadcaster.FRAME_TOPIC, CashoutFrameDto.class, mirror::applyFrame);
+        clusterNode.subscribeAsFollower(PLAYERS_TOPIC, PlayerListSnapshotDto.class, mirror::applyPlayerList);
+        clusterNode.subscribeAsFollower(HISTORY_TOPIC, BigDecimal[].class, history -> mirror.applyCrashHistory(List.of(history)));
+        clusterNode.subscribeAsFollower(STATE_CHANNEL, CosmicCashoutStateDto.class, mirror::applyState);
+        // After the mirror, so a client that asks for the state on a broadcast already gets the updated one
+        clusterNode.relayToClients(CashoutFrameBroadcaster.FRAME_TOPIC);
+        clusterNode.relayToClients(PLAYERS_TOPIC);
+        clusterNode.relayToClients(HISTORY_TOPIC);
+        clusterNode.subscribe(COMMAND_CHANNEL, CashoutCommand.class, this::execute);
+        if (!clusterNode.isLeader()) {
+            clusterNode.sendToLeader(COMMAND_CHANNEL,
+                    new CashoutCommand(CashoutCommand.Type.SYNC, null, null, null, null, null));
+        }
     }
 
     public CosmicCashoutStateDto getCurrentGameState() {
+        if (!clusterNode.isLeader()) {
+            return mirror.state();
+        }
         // Returns the current game state, including the list of players and crash history.
-        var playerList = playersInRound.values().stream()
-                .sorted(Comparator.comparing(PlayerStateDto::getBetAmount).reversed())
-                .collect(Collectors.toList());
-        return new CosmicCashoutStateDto(gameState.name(), currentMultiplier, playerList, crashHistory);
+        PlayerListSnapshotDto snapshot = getPlayerListSnapshot();
+        return new CosmicCashoutStateDto(gameState.get().name(), FixedPointMultiplier.toBigDecimal(currentMultiplier),
+                snapshot.players(), snapshot.seq(), crashHistory);
     }
 
     /**
-     * Broadcasts the current list of players to all subscribers.
+     * Returns the full player list together with the sequence number of the last delta it includes.
      */
-    private void broadcastPlayerList() {
-        var playerList = playersInRound.values().stream()
-                .sorted(Comparator.comparing(PlayerStateDto::getBetAmount).reversed())
-                .collect(Collectors.toList());
-        messagingTemplate.convertAndSend("/topic/cashout/players", playerList);
+    public PlayerListSnapshotDto getPlayerListSnapshot() {
+        if (!clusterNode.isLeader()) {
+            return mirror.playerList();
+        }
+        synchronized (playerListLock) {
+            var playerList = playersInRound.values().stream()
+                    .map(RoundPlayer::state)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(PlayerStateDto::getBetAmount).reversed())
+                    .collect(Collectors.toList());
+            return new PlayerListSnapshotDto(playerListSeq, playerList);
+        }
+    }
+
+    /**
+     * Queues a single player list change for the next broadcast frame instead of sending the whole list.
+     */
+    private void publishPlayerDelta(PlayerListDeltaDto.Op op, PlayerStateDto player) {
+        synchronized (playerListLock) {
+            var delta = new PlayerListDeltaDto(++playerListSeq, op, player.getSeat(), player);
+            frameBroadcaster.delta(delta);
+        }
+    }
+
+    /**
+     * Clears the player list and broadcasts the (empty) snapshot, which every client applies as a reset.
+     * The pending frame goes out first, so the crash and the last deltas of the round arrive before the reset.
+     */
+    private void resetPlayerList() {
+        synchronized (playerListLock) {
+            frameBroadcaster.publishFrame();
+            playersInRound.clear();
+            nextSeat = 0;
+            clusterNode.publishToClients(PLAYERS_TOPIC, new PlayerListSnapshotDto(++playerListSeq, List.of()));
+        }
+    }
+
+    private int assignSeat() {
+        synchronized (playerListLock) {
+            return nextSeat++;
+        }
     }
 
     @Scheduled(fixedRate = 15000)
     public void gameLoop() {
-        startNewRound();
+        // Every node schedules the loop, but only the lease holder runs rounds
+        if (clusterNode.isLeader()) {
+            startNewRound();
+        }
     }
 
     private void startNewRound() {
-        synchronized (gameStateLock) {
-            if (gameState == GameState.WAITING) {
-                gameState = GameState.RUNNING;
-                currentMultiplier = BigDecimal.ONE;
-                log.info("Starting new Cosmic Cashout round with {} players.", playersInRound.size());
-                messagingTemplate.convertAndSend("/topic/cashout/state", "RUNNING");
-
-                double crashPoint = 1.0 + random.nextDouble() * 2.0;
-
-                virtualThreadExecutor.submit(() -> {
-                    try {
-                        playersInRound.values().forEach(p -> p.setStatus(PlayerStatus.IN_GAME));
-                        broadcastPlayerList();
-
-                        while (currentMultiplier.doubleValue() < crashPoint && gameState == GameState.RUNNING) {
-                            currentMultiplier = currentMultiplier.add(new BigDecimal("0.01"));
-                            messagingTemplate.convertAndSend("/topic/cashout/multiplier", currentMultiplier);
-                            Thread.sleep(100);
-                        }
-                        if (gameState == GameState.RUNNING) {
-                            crash(crashPoint);
-                        }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                });
+        if (gameState.get() != GameState.WAITING) {
+            return;
+        }
+        closeBetting();
+        // Uniform crash point between 1.00x and 2.99x, kept secret until the crash reveals it
+        FairDraw draw = provablyFairService.draw(FairGame.COSMIC_CASHOUT);
+        Round next = new Round(System.nanoTime(), FixedPointMultiplier.ONE + draw.outcome(), draw);
+        round = next;
+        currentMultiplier = FixedPointMultiplier.ONE;
+        lastTickNanos = next.startNanos();
+        if (!gameState.compareAndSet(GameState.WAITING, GameState.RUNNING)) {
+            openBetting();
+            return;
+        }
+        // Betting is closed, so the targets are sorted once and the round only walks them forward
+        AutoCashoutQueue autoCashouts = AutoCashoutQueue.of(playersInRound.values());
+        log.info("Starting new Cosmic Cashout round with {} players.", playersInRound.size());
+        frameBroadcaster.multiplier(FixedPointMultiplier.ONE);
+        frameBroadcaster.state("RUNNING");
+
+        virtualThreadExecutor.submit(() -> runRound(next, autoCashouts));
+    }
+
+    /**
+     * Admits a bet unless betting is closed. Every admitted bet must call {@link #leaveBetting()}.
+     */
+    private boolean enterBetting() {
+        while (true) {
+            long gate = betGate.get();
+            if ((gate & BETTING_CLOSED) != 0) {
+                return false;
+            }
+            if (betGate.compareAndSet(gate, gate + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void leaveBetting() {
+        betGate.decrementAndGet();
+    }
+
+    /**
+     * Stops admitting bets and waits for the admitted ones to finish their wallet call and join the round.
+     */
+    private void closeBetting() {
+        betGate.getAndUpdate(gate -> gate | BETTING_CLOSED);
+        while (betGate.get() != BETTING_CLOSED) {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private void openBetting() {
+        betGate.getAndUpdate(gate -> gate & ~BETTING_CLOSED);
+    }
+
+    /**
+     * Round loop: every tick derives the multiplier from the round clock, so a late tick never slows the game down.
+     * The tick only publishes a primitive to the frame broadcaster and compares it with the next auto cash-out
+     * target, so nothing is allocated per tick unless a target was reached.
+     */
+    private void runRound(Round round, AutoCashoutQueue autoCashouts) {
+        long nextTick = round.startNanos();
+        while (gameState.get() == GameState.RUNNING) {
+            if (!clusterNode.isLeader()) {
+                abandonRound(round);
+                return;
+            }
+            long multiplier = round.multiplierAt(System.nanoTime());
+            if (multiplier >= round.crashPoint()) {
+                // Targets below the crash point were reached before it, even if no tick observed them
+                settleAutoCashouts(autoCashouts, round.crashPoint() - 1);
+                crash(round);
+                return;
+            }
+            settleAutoCashouts(autoCashouts, multiplier);
+            currentMultiplier = multiplier;
+            lastTickNanos = System.nanoTime();
+            frameBroadcaster.multiplier(multiplier);
+
+            nextTick += tickNanos;
+            LockSupport.parkNanos(nextTick - System.nanoTime());
+            if (Thread.currentThread().isInterrupted()) {
+                return;
             }
         }
     }
 
-    private void crash(double crashPoint) {
-        gameState = GameState.CRASHED;
-        BigDecimal finalMultiplier = BigDecimal.valueOf(crashPoint).setScale(2, RoundingMode.DOWN);
+    /**
+     * Cashes out every player whose target is at or below the given multiplier, each at exactly their target,
+     * with one wallet write and one batch of game records. If the payout fails the players are put back in the game:
+     * they can still cash out at their target by hand, otherwise the crash settles them as lost.
+     */
+    private void settleAutoCashouts(AutoCashoutQueue autoCashouts, long reached) {
+        if (!autoCashouts.isDue(reached)) {
+            return;
+        }
+        Map<String, BigDecimal> winnings = new LinkedHashMap<>();
+        List<GameHistory> games = new ArrayList<>();
+        List<RoundPlayer> cashedOut = new ArrayList<>();
+        List<Long> targets = new ArrayList<>();
+        Date now = new Date();
+        while (autoCashouts.isDue(reached)) {
+            long target = autoCashouts.nextTarget();
+            RoundPlayer player = autoCashouts.poll();
+            // A manual cash-out may have got in first
+            if (!player.claimCashOut()) continue;
+
+            BigDecimal betAmount = player.state().getBetAmount();
+            BigDecimal winAmount = FixedPointMultiplier.payout(betAmount, target);
+            winnings.put(player.uid(), winAmount);
+            games.add(createGameHistory(player.uid(), betAmount, winAmount, FixedPointMultiplier.toBigDecimal(target).toPlainString() + "x", now));
+            cashedOut.add(player);
+            targets.add(target);
+        }
+        if (winnings.isEmpty()) {
+            return;
+        }
+
+        try {
+            walletService.processWins(winnings);
+        } catch (RuntimeException e) {
+            // The round must go on; nobody was paid, so the players stay in the game
+            cashedOut.forEach(RoundPlayer::releaseCashOut);
+            log.error("Auto cash-out payout failed for users {}, their bets stay in the round.", winnings.keySet(), e);
+            return;
+        }
+        for (int i = 0; i < cashedOut.size(); i++) {
+            publishPlayerDelta(PlayerListDeltaDto.Op.UPDATE, cashedOut.get(i).confirmCashOut(targets.get(i)));
+        }
+        gameHistoryWriter.submitAll(games);
+        log.debug("Auto cashed out {} players up to {}.", winnings.size(), reached);
+    }
+
+    private void crash(Round round) {
+        long crashPoint = round.crashPoint();
+        gameState.set(GameState.CRASHED);
+        currentMultiplier = crashPoint;
+        metrics.cashoutRound(System.nanoTime() - round.startNanos(), playersInRound.size());
+        BigDecimal finalMultiplier = FixedPointMultiplier.toBigDecimal(crashPoint);
         String formattedCrashPoint = finalMultiplier.toPlainString();
 
         log.info("CRASH! Multiplier stopped at {}", formattedCrashPoint);
-        messagingTemplate.convertAndSend("/topic/cashout/crash", formattedCrashPoint);
+        frameBroadcaster.crash(crashPoint);
+        provablyFairService.reveal(FairGame.COSMIC_CASHOUT, round.draw());
 
         crashHistory.addFirst(finalMultiplier);
         if (crashHistory.size() > 10) {
             crashHistory.removeLast();
         }
-        messagingTemplate.convertAndSend("/topic/cashout/history", crashHistory);
+        clusterNode.publishToClients(HISTORY_TOPIC, crashHistory);
 
 
 
-        playersInRound.values().stream()
-                .filter(p -> p.getStatus() == PlayerStatus.IN_GAME)
-                .forEach(player -> {
-                    // We need to find the UID by username, which is a flaw.
-                    // For now, we assume username is unique or we find the first match.
-                    playersInRound.entrySet().stream()
-                            .filter(entry -> entry.getValue().equals(player))
-                            .findFirst()
-                            .ifPresent(entry -> {
-                                String result = formattedCrashPoint + "x";
-                                saveGameHistory(entry.getKey(), player.getBetAmount(), BigDecimal.ZERO, result);
-                            });
-                });
+        // One pass settles every player still in the game; a cash-out that got in before the crash wins the CAS
+        String result = formattedCrashPoint + "x";
+        Date now = new Date();
+        List<GameHistory> losses = new ArrayList<>();
+        for (RoundPlayer player : playersInRound.values()) {
+            if (player.lose()) {
+                losses.add(createGameHistory(player.uid(), player.state().getBetAmount(), BigDecimal.ZERO, result, now));
+            }
+        }
+        gameHistoryWriter.submitAll(losses);
 
-        playersInRound.clear();
-        broadcastPlayerList();
+        resetPlayerList();
 
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } finally {
-            gameState = GameState.WAITING;
-            messagingTemplate.convertAndSend("/topic/cashout/state", "WAITING");
+        // The cooldown is a scheduled task, so no thread is held while the crash screen is shown
+        taskScheduler.schedule(this::openBettingWindow, Instant.now().plus(cooldown));
+    }
+
+    /**
+     * Stops a round after the leader lease was lost: cash-outs are now relayed to the new leader, so this node
+     * could no longer settle it fairly. Bets still in the game are refunded and recorded as refunded games,
+     * the round's draw is published as void, and clients are sent the crash and the player list reset.
+     */
+    private void abandonRound(Round round) {
+        gameState.set(GameState.CRASHED);
+        Map<String, BigDecimal> stakes = new LinkedHashMap<>();
+        List<GameHistory> games = new ArrayList<>();
+        List<RoundPlayer> refunded = new ArrayList<>();
+        Date now = new Date();
+        for (RoundPlayer player : playersInRound.values()) {
+            // A cash-out that got in first is paid as usual
+            if (player.claimCashOut()) {
+                BigDecimal betAmount = player.state().getBetAmount();
+                stakes.put(player.uid(), betAmount);
+                GameHistory game = createGameHistory(player.uid(), betAmount, BigDecimal.ZERO, "refunded", now);
+                game.setRefunded(true);
+                games.add(game);
+                refunded.add(player);
+            }
+        }
+        log.warn("Lost the cluster leadership during a round, returning the stakes of {} players.", stakes.size());
+        if (!stakes.isEmpty()) {
+            try {
+                walletService.refundBets(stakes);
+                refunded.forEach(RoundPlayer::refund);
+                gameHistoryWriter.submitAll(games);
+            } catch (RuntimeException e) {
+                log.error("Returning the stakes of abandoned round players {} failed.", stakes.keySet(), e);
+            }
+        }
+        provablyFairService.voidDraw(FairGame.COSMIC_CASHOUT, round.draw());
+        frameBroadcaster.cancelRound();
+        resetPlayerList();
+        gameState.set(GameState.WAITING);
+        openBetting();
+    }
+
+    private void openBettingWindow() {
+        gameState.set(GameState.WAITING);
+        openBetting();
+        frameBroadcaster.state("WAITING");
+    }
+
+    /**
+     * Places a bet for the next round. The wallet is debited outside any shared lock; a duplicate bet
+     * or a bet that arrives once the round has started is rejected without touching the wallet.
+     * @param uid Identifier of the user.
+     * @param sessionId WebSocket session the bet came from.
+     * @param displayName Name shown in the player list.
+     * @param amount Bet amount.
+     * @param autoCashout Multiplier at which the round cashes the bet out by itself, or null for manual cash-out only.
+     * @throws IllegalArgumentException if the auto cash-out multiplier is not above 1.00 or is above 1000000.00.
+     */
+    public void placeBet(String uid, String sessionId, String displayName, BigDecimal amount, BigDecimal autoCashout) {
+        if (autoCashout != null && (autoCashout.compareTo(BigDecimal.ONE) <= 0 || autoCashout.compareTo(MAX_AUTO_CASHOUT) > 0)) {
+            throw new IllegalArgumentException("Auto cash-out multiplier must be above 1.00 and at most " + MAX_AUTO_CASHOUT + ".");
+        }
+        long autoCashoutTarget = autoCashout == null ? NO_AUTO_CASHOUT : FixedPointMultiplier.fromBigDecimal(autoCashout);
+        if (autoCashoutTarget <= FixedPointMultiplier.ONE) {
+            // Hundredths are truncated, so e.g. 1.001 becomes 1.00
+            throw new IllegalArgumentException("Auto cash-out multiplier must be above 1.00.");
+        }
+        if (clusterNode.isLeader()) {
+            placeBetOnLeader(uid, displayName, amount, autoCashoutTarget);
+        } else {
+            clusterNode.sendToLeader(COMMAND_CHANNEL, new CashoutCommand(CashoutCommand.Type.BET, uid, sessionId, displayName,
+                    amount, autoCashout));
         }
     }
 
-    public void placeBet(String uid, String displayName, BigDecimal amount) {
-        synchronized (gameStateLock) {
-            if (gameState == GameState.WAITING && !playersInRound.containsKey(uid)) {
+    private void placeBetOnLeader(String uid, String displayName, BigDecimal amount, long autoCashoutTarget) {
+        if (!enterBetting()) {
+            log.warn("Bet rejected for user {}. State: {}", uid, gameState.get());
+            return;
+        }
+        try {
+            RoundPlayer player = new RoundPlayer(uid, autoCashoutTarget);
+            if (playersInRound.putIfAbsent(uid, player) != null) {
+                log.warn("Bet rejected for user {}. Already in round.", uid);
+                return;
+            }
+            try {
                 walletService.placeBet(uid, amount);
-                PlayerStateDto playerState = new PlayerStateDto(displayName, amount, PlayerStatus.IN_GAME, null);
-                playersInRound.put(uid, playerState);
-                log.info("User {} ({}) placed a bet of {}", uid, displayName, amount);
-                broadcastPlayerList();
-            } else {
-                log.warn("Bet rejected for user {}. State: {} or already in round.", uid, gameState);
+            } catch (RuntimeException e) {
+                playersInRound.remove(uid, player);
+                throw e;
             }
+            PlayerStateDto playerState = new PlayerStateDto(assignSeat(), displayName, amount, PlayerStatus.IN_GAME, null);
+            player.join(playerState);
+            log.debug("User {} ({}) placed a bet of {}", uid, displayName, amount);
+            publishPlayerDelta(PlayerListDeltaDto.Op.ADD, playerState);
+        } finally {
+            leaveBetting();
         }
     }
 
-    public void cashOut(String uid) {
-        BigDecimal cashoutMultiplier = currentMultiplier.setScale(2, RoundingMode.DOWN);
-        if (gameState == GameState.RUNNING && playersInRound.containsKey(uid)) {
-            PlayerStateDto playerState = playersInRound.get(uid);
+    /**
+     * Cashes the player out at the multiplier of the moment the request reaches the node that runs the round.
+     * @param uid Identifier of the user.
+     * @param sessionId WebSocket session the cash-out came from.
+     */
+    public void cashOut(String uid, String sessionId) {
+        if (clusterNode.isLeader()) {
+            cashOutOnLeader(uid);
+        } else {
+            clusterNode.sendToLeader(COMMAND_CHANNEL, new CashoutCommand(CashoutCommand.Type.CASHOUT, uid, sessionId, null, null, null));
+        }
+    }
 
-            // Prevent cashing out twice
-            if (playerState.getStatus() == PlayerStatus.CASHED_OUT) return;
+    private void execute(CashoutCommand command) {
+        if (!clusterNode.isLeader()) {
+            log.warn("Dropped relayed {} command, this node no longer leads.", command.type());
+            return;
+        }
+        try {
+            switch (command.type()) {
+                case BET -> placeBet(command.uid(), command.sessionId(), command.displayName(), command.amount(),
+                        command.autoCashout());
+                case CASHOUT -> cashOutOnLeader(command.uid());
+                case SYNC -> clusterNode.broadcast(STATE_CHANNEL, getCurrentGameState());
+            }
+        } catch (IllegalArgumentException | InsufficientFundsException e) {
+            log.warn("Relayed {} command for user {} rejected: {}", command.type(), command.uid(), e.getMessage());
+            rejectRelayed(command, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Relayed {} command for user {} failed", command.type(), command.uid(), e);
+            rejectRelayed(command, command.type() == CashoutCommand.Type.BET
+                    ? "The bet could not be placed, please try again."
+                    : "The cash-out could not be completed, please try again.");
+        }
+    }
 
-            BigDecimal betAmount = playerState.getBetAmount();
-            BigDecimal winnings = betAmount.multiply(cashoutMultiplier).setScale(2, RoundingMode.DOWN);
+    /**
+     * Tells the session a relayed command came from that the leader rejected it, as the follower's own
+     * exception handler would have for a command it ran itself.
+     */
+    private void rejectRelayed(CashoutCommand command, String message) {
+        if (command.sessionId() == null) {
+            return; // SYNC, sent by a node rather than a client
+        }
+        String destination = command.type() == CashoutCommand.Type.BET
+                ? "/app/cosmic-cashout/bet"
+                : "/app/cosmic-cashout/cashout";
+        clusterNode.sendToSession(command.uid(), command.sessionId(), "/queue/errors", new BetRejectedDto(destination, message));
+    }
 
-            walletService.processWin(uid, winnings);
+    private void cashOutOnLeader(String uid) {
+        // Exact multiplier at the moment the request arrives, not the value of the last tick
+        long now = System.nanoTime();
+        if (gameState.get() != GameState.RUNNING) return;
+        Round round = this.round;
+        RoundPlayer player = playersInRound.get(uid);
+        if (player == null) return;
+        // A target the multiplier has already passed is paid at the target, even if the round has not settled it yet
+        long cashoutMultiplier = Math.min(round.multiplierAt(now), player.autoCashout());
+        // Only the first cash-out of a player still in the game wins the CAS; a crash or a repeated request loses it
+        if (cashoutMultiplier >= round.crashPoint() || !player.claimCashOut()) return;
+
+        BigDecimal betAmount = player.state().getBetAmount();
+        BigDecimal winnings = FixedPointMultiplier.payout(betAmount, cashoutMultiplier);
 
-            // Update player state
-            playerState.setStatus(PlayerStatus.CASHED_OUT);
-            playerState.setCashOutMultiplier(cashoutMultiplier.setScale(2, RoundingMode.DOWN));
+        try {
+            walletService.processWin(uid, winnings);
+        } catch (RuntimeException e) {
+            // Not paid, so the bet stays in the game and the player may try again
+            player.releaseCashOut();
+            throw e;
+        }
+        PlayerStateDto playerState = player.confirmCashOut(cashoutMultiplier);
 
-            broadcastPlayerList();
+        publishPlayerDelta(PlayerListDeltaDto.Op.UPDATE, playerState);
 
-            String result = MessageFormat.format("{0}x", playerState.getCashOutMultiplier());
-            saveGameHistory(uid, betAmount, winnings, result);
+        String result = MessageFormat.format("{0}x", playerState.getCashOutMultiplier());
+        gameHistoryWriter.submit(createGameHistory(uid, betAmount, winnings, result, new Date()));
 
-            log.info("User {} cashed out at {}x, winning {}", uid, playerState.getCashOutMultiplier(), winnings);
-        }
+        metrics.cashoutLatency(System.nanoTime() - lastTickNanos);
+        log.debug("User {} cashed out at {}x, winning {}", uid, playerState.getCashOutMultiplier(), winnings);
     }
 
-    private void saveGameHistory(String uid, BigDecimal bet, BigDecimal win, String result) {
+    private static GameHistory createGameHistory(String uid, BigDecimal bet, BigDecimal win, String result, Date timestamp) {
         GameHistory history = new GameHistory();
         history.setUserId(uid);
         history.setGameType(GameType.COSMIC_CASHOUT);
         history.setBetAmount(bet);
         history.setWinAmount(win);
         history.setResult(result);
-        history.setTimestamp(new Date());
-        firestore.collection(GAME_HISTORY_COLLECTION).document().set(history);
+        history.setTimestamp(timestamp);
+        return history;
     }
 
     @PreDestroy
@@ -203,4 +567,130 @@ public class CosmicCashoutService {
     }
 
     private enum GameState { WAITING, RUNNING, CRASHED }
-}
\ No newline at end of file
+
+    /**
+     * Timing of one round. The multiplier is derived from System.nanoTime() - startNanos, in hundredths.
+     * The crash point comes from the provably fair draw, which is revealed when the round crashes.
+     */
+    private record Round(long startNanos, long crashPoint, FairDraw draw) {
+        long multiplierAt(long nanoTime) {
+            return FixedPointMultiplier.at(nanoTime - startNanos);
+        }
+    }
+
+    /**
+     * A player's seat in the current round, carrying the player's UID so the round can be settled in one pass.
+     * The outcome moves from IN_GAME to exactly one of CASHED_OUT, LOST or REFUNDED by CAS, so concurrent cash-outs
+     * and the crash cannot settle the same bet twice. A cash-out holds the bet in CASHING_OUT while the payout is
+     * written and only commits once it succeeded; the crash waits for it.
+     */
+    private static final class RoundPlayer {
+        private final String uid;
+        private final long autoCashout;
+        private final AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.PENDING);
+        private volatile PlayerStateDto state;
+
+        private RoundPlayer(String uid, long autoCashout) {
+            this.uid = uid;
+            this.autoCashout = autoCashout;
+        }
+
+        private String uid() {
+            return uid;
+        }
+
+        // Target in hundredths, NO_AUTO_CASHOUT if the player cashes out manually
+        private long autoCashout() {
+            return autoCashout;
+        }
+
+        private void join(PlayerStateDto state) {
+            this.state = state;
+            outcome.set(Outcome.IN_GAME);
+        }
+
+        private boolean claimCashOut() {
+            return outcome.compareAndSet(Outcome.IN_GAME, Outcome.CASHING_OUT);
+        }
+
+        /**
+         * Commits a claimed cash-out once the winnings were paid.
+         * @return The player's state, updated to the cash-out.
+         */
+        private PlayerStateDto confirmCashOut(long multiplier) {
+            state.setStatus(PlayerStatus.CASHED_OUT);
+            state.setCashOutMultiplier(FixedPointMultiplier.toBigDecimal(multiplier));
+            outcome.set(Outcome.CASHED_OUT);
+            return state;
+        }
+
+        // The stake of a claimed bet was returned because the round was called off
+        private void refund() {
+            outcome.set(Outcome.REFUNDED);
+        }
+
+        // The payout of a claimed cash-out failed
+        private void releaseCashOut() {
+            outcome.compareAndSet(Outcome.CASHING_OUT, Outcome.IN_GAME);
+        }
+
+        private boolean lose() {
+            while (true) {
+                if (outcome.compareAndSet(Outcome.IN_GAME, Outcome.LOST)) {
+                    return true;
+                }
+                if (outcome.get() != Outcome.CASHING_OUT) {
+                    return false;
+                }
+                // A payout is being written; it either commits or puts the bet back in the game
+                LockSupport.parkNanos(50_000);
+            }
+        }
+
+        // Null until the stake has been debited
+        private PlayerStateDto state() {
+            return state;
+        }
+
+        private enum Outcome { PENDING, IN_GAME, CASHING_OUT, CASHED_OUT, LOST, REFUNDED }
+    }
+
+    /**
+     * Auto cash-out targets of one round in ascending order. Only the round thread reads it, walking
+     * forward as the multiplier grows, so each tick costs one comparison.
+     */
+    private static final class AutoCashoutQueue {
+        private final long[] targets;
+        private final RoundPlayer[] players;
+        private int next;
+
+        private AutoCashoutQueue(long[] targets, RoundPlayer[] players) {
+            this.targets = targets;
+            this.players = players;
+        }
+
+        private static AutoCashoutQueue of(Collection<RoundPlayer> roundPlayers) {
+            RoundPlayer[] players = roundPlayers.stream()
+                    .filter(player -> player.state() != null && player.autoCashout() != NO_AUTO_CASHOUT)
+                    .sorted(Comparator.comparingLong(RoundPlayer::autoCashout))
+                    .toArray(RoundPlayer[]::new);
+            long[] targets = new long[players.length];
+            for (int i = 0; i < players.length; i++) {
+                targets[i] = players[i].autoCashout();
+            }
+            return new AutoCashoutQueue(targets, players);
+        }
+
+        private boolean isDue(long multiplier) {
+            return next < targets.length && targets[next] <= multiplier;
+        }
+
+        private long nextTarget() {
+            return targets[next];
+        }
+
+        private RoundPlayer poll() {
+            return players[next++];
+        }
+    }
+}
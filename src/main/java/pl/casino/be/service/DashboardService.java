@@ -1,40 +1,152 @@
 package pl.casino.be.service;
 
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 import pl.casino.be.dto.PublicGameHistoryDto;
+import pl.casino.be.exception.StorageException;
 import pl.casino.be.model.GameHistory;
-import pl.casino.be.service.utils.UsernameGenerator; // Import the generator
+import pl.casino.be.service.utils.UsernameGenerator;
+import pl.casino.be.storage.GameHistoryRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
+/**
+ * Keeps the most recent winning games in a ring buffer fed by the game history write path.
+ * The public list is serialized once per new win; readers get the pre-encoded snapshot and
+ * subscribers of /topic/dashboard/wins get the same bytes pushed.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class DashboardService {
 
-    private final Firestore firestore;
-    // No longer need UserService
+    public static final String WINS_TOPIC = "/topic/dashboard/wins";
 
-    public List<PublicGameHistoryDto> getRecentBigWins() throws ExecutionException, InterruptedException {
-        // Fetch the last 20 games where the winAmount was greater than zero
-        List<GameHistory> games = firestore.collection("game_history")
-                .whereGreaterThan("winAmount", "0") // Filter for wins only
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(20)
-                .get().get().toObjects(GameHistory.class);
+    private final GameHistoryRepository gameHistoryRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
 
-        // Map to the DTO, generating a fake username for each entry
-        return games.stream().map(game -> new PublicGameHistoryDto(
-                UsernameGenerator.generateFakeUsername(), // Use the generator
+    // Guarded by this; head is the slot the next win is written to
+    private final PublicGameHistoryDto[] ring;
+    private int head;
+    private int size;
+
+    private volatile byte[] snapshot = "[]".getBytes(StandardCharsets.UTF_8);
+
+    public DashboardService(GameHistoryRepository gameHistoryRepository, SimpMessagingTemplate messagingTemplate,
+                            ObjectMapper objectMapper, @Value("${casino.dashboard.big-wins-size:20}") int capacity) {
+        this.gameHistoryRepository = gameHistoryRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.ring = new PublicGameHistoryDto[capacity];
+    }
+
+    /**
+     * Seeds the buffer with the wins stored before this node started. This is the only storage read.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            List<GameHistory> stored = gameHistoryRepository.findRecentWins(ring.length);
+            synchronized (this) {
+                // Stored wins come newest first; insert oldest first so the newest ends up at the head
+                for (GameHistory game : stored.reversed()) {
+                    add(game);
+                }
+                rebuildSnapshot();
+            }
+        } catch (StorageException e) {
+            log.warn("Could not load recent big wins, starting with an empty list: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Records a finished game. Games without a win are ignored.
+     * @param history Finished game.
+     */
+    public void recordGame(GameHistory history) {
+        if (isWin(history)) {
+            recordGames(List.of(history));
+        }
+    }
+
+    /**
+     * Records several finished games, e.g. all players of a shared round, with a single snapshot rebuild.
+     * @param histories Finished games.
+     */
+    public void recordGames(Collection<GameHistory> histories) {
+        List<GameHistory> newWins = histories.stream()
+                .filter(DashboardService::isWin)
+                .toList();
+        if (newWins.isEmpty()) {
+            return;
+        }
+        byte[] payload;
+        synchronized (this) {
+            newWins.forEach(this::add);
+            payload = rebuildSnapshot();
+        }
+        if (payload != null) {
+            messagingTemplate.send(WINS_TOPIC, encode(payload));
+        }
+    }
+
+    /**
+     * @return JSON array of the recent wins, newest first. Callers must not modify it.
+     */
+    public byte[] getRecentBigWins() {
+        return snapshot;
+    }
+
+    private static boolean isWin(GameHistory history) {
+        return history.getWinAmount() != null && history.getWinAmount().signum() > 0;
+    }
+
+    private void add(GameHistory game) {
+        // The fake name is drawn once per win so it stays stable across reads
+        ring[head] = new PublicGameHistoryDto(
+                UsernameGenerator.generateFakeUsername(),
                 game.getGameType(),
                 game.getBetAmount(),
                 game.getWinAmount(),
                 game.getResult(),
                 game.getTimestamp()
-        )).collect(Collectors.toList());
+        );
+        head = (head + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    private byte[] rebuildSnapshot() {
+        List<PublicGameHistoryDto> wins = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            wins.add(ring[Math.floorMod(head - i, ring.length)]);
+        }
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(wins);
+            snapshot = payload;
+            return payload;
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize recent big wins", e);
+            return null;
+        }
+    }
+
+    private static Message<byte[]> encode(byte[] payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
     }
-}
\ No newline at end of file
+}
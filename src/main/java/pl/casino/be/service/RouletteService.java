@@ -1,75 +1,71 @@
 package pl.casino.be.service;
 
-
-import com.google.cloud.firestore.Firestore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import pl.casino.be.dto.BetRequest;
+import pl.casino.be.exception.LedgerSyncException;
 import pl.casino.be.model.GameHistory;
 import pl.casino.be.model.GameType;
+import pl.casino.be.service.fair.FairDraw;
+import pl.casino.be.service.fair.FairGame;
+import pl.casino.be.service.fair.ProvablyFairService;
+import pl.casino.be.service.roulette.RouletteSlip;
 
 import java.math.BigDecimal;
-import java.security.SecureRandom;
 import java.util.Date;
-import java.util.Set;
+import java.util.List;
 
 @Slf4j
 @Service
 public class RouletteService {
 
     private final WalletService walletService;
-    private final Firestore firestore;
-    private final SecureRandom random = new SecureRandom();
-
-    private static final String GAME_HISTORY_COLLECTION = "game_history";
-    private static final Set<Integer> RED_NUMBERS = Set.of(1, 3, 5, 7, 9, 12, 14, 16, 18, 19, 21, 23, 25, 27, 30, 32, 34, 36);
+    private final ProvablyFairService provablyFairService;
 
-    public RouletteService(WalletService walletService, Firestore firestore) {
+    public RouletteService(WalletService walletService, ProvablyFairService provablyFairService) {
         this.walletService = walletService;
-        this.firestore = firestore;
+        this.provablyFairService = provablyFairService;
     }
 
     public GameHistory play(String uid, BetRequest bet) {
-        // Place the bet (deduct from wallet)
-        walletService.placeBet(uid, bet.amount());
-
-        // Spin the roulette
-        int winningNumber = random.nextInt(37); // 0-36
-
-        // Calculate winnings
-        BigDecimal winnings = calculateWinnings(bet, winningNumber);
+        return play(uid, List.of(bet));
+    }
 
-        // Process winnings (add to wallet if any)
-        walletService.processWin(uid, winnings);
+    /**
+     * Plays one spin for a slip of bets and settles the total stake and payout in a single wallet operation.
+     * @param uid Identifier of the user.
+     * @param bets Bets placed on the spin.
+     * @return The recorded game.
+     */
+    public GameHistory play(String uid, List<BetRequest> bets) {
+        RouletteSlip slip = RouletteSlip.of(bets);
 
-        // Log game history
-        String resultDescription = winningNumber == 0 ? "0" : String.valueOf(winningNumber);
-        GameHistory gameHistory = createGameHistory(uid, bet.amount(), winnings, resultDescription);
-        saveGameHistory(gameHistory);
+        // Spin the roulette
+        FairDraw draw = provablyFairService.draw(FairGame.ROULETTE);
+        int winningNumber = draw.outcome(); // 0-36
+        BigDecimal winnings = slip.payout(winningNumber);
+
+        // Debit the stake, credit the winnings and record the game in one settlement
+        GameHistory gameHistory = createGameHistory(uid, slip.stake(), winnings, String.valueOf(winningNumber));
+        gameHistory.setFairHash(draw.hash());
+        try {
+            walletService.settleGame(uid, slip.stake(), winnings, gameHistory);
+        } catch (LedgerSyncException e) {
+            // The spin was settled, only its journal copy is missing
+            provablyFairService.reveal(FairGame.ROULETTE, draw);
+            throw e;
+        } catch (RuntimeException e) {
+            provablyFairService.voidDraw(FairGame.ROULETTE, draw);
+            throw e;
+        }
+        // The spin is over, so its hash can be checked right away
+        provablyFairService.reveal(FairGame.ROULETTE, draw);
 
-        log.info("Roulette played by {}. Bet on {} {}. Winning number: {}. Won: {}", uid, bet.betType(), bet.betValue(), winningNumber, winnings);
+        log.debug("Roulette played by {}. {} bets, stake {}. Winning number: {}. Won: {}", uid, slip.size(), slip.stake(), winningNumber, winnings);
 
         return gameHistory;
     }
 
-    private BigDecimal calculateWinnings(BetRequest bet, int winningNumber) {
-        switch (bet.betType().toLowerCase()) {
-            case "number":
-                int betNumber = Integer.parseInt(bet.betValue());
-                return (winningNumber == betNumber) ? bet.amount().multiply(BigDecimal.valueOf(36)) : BigDecimal.ZERO;
-            case "color":
-                if (winningNumber == 0) return BigDecimal.ZERO;
-                boolean isRed = RED_NUMBERS.contains(winningNumber);
-                if ((bet.betValue().equalsIgnoreCase("red") && isRed) || (bet.betValue().equalsIgnoreCase("black") && !isRed)) {
-                    return bet.amount().multiply(BigDecimal.valueOf(2));
-                }
-                return BigDecimal.ZERO;
-            // TODO add more bet types like odd/even, high/low, dozens, etc.
-            default:
-                return BigDecimal.ZERO;
-        }
-    }
-
     private GameHistory createGameHistory(String uid, BigDecimal betAmount, BigDecimal winAmount, String result) {
         GameHistory history = new GameHistory();
         history.setUserId(uid);
@@ -80,8 +76,4 @@ public class RouletteService {
         history.setTimestamp(new Date());
         return history;
     }
-
-    private void saveGameHistory(GameHistory history) {
-        firestore.collection(GAME_HISTORY_COLLECTION).document().set(history);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package pl.casino.be.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.casino.be.dto.BetRequest;
+import pl.casino.be.dto.RouletteTableEventDto;
+import pl.casino.be.dto.RouletteTablePlayerDto;
+import pl.casino.be.dto.RouletteTableStateDto;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.GameType;
+import pl.casino.be.service.fair.FairDraw;
+import pl.casino.be.service.fair.FairGame;
+import pl.casino.be.service.fair.ProvablyFairService;
+import pl.casino.be.service.ledger.Settlement;
+import pl.casino.be.service.roulette.RouletteSlip;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * Shared roulette table. Bets arrive over WebSocket during the round and only reserve the stake;
+ * every round has one spin, after which all players are settled with a single ledger write.
+ */
+@Slf4j
+@Service
+public class RouletteTableService {
+
+    public static final String TABLE_TOPIC = "/topic/roulette/table";
+    private static final int RECENT_NUMBERS = 10;
+
+    private final WalletService walletService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ProvablyFairService provablyFairService;
+    private final long roundMillis;
+
+    // Guarded by this
+    private long round = 1;
+    private long closesAt;
+    private Map<String, Bettor> bettors = new LinkedHashMap<>();
+    private final Deque<Integer> recentNumbers = new ArrayDeque<>();
+
+    public RouletteTableService(WalletService walletService, SimpMessagingTemplate messagingTemplate,
+                                ProvablyFairService provablyFairService,
+                                @Value("${casino.roulette.table.round-ms:20000}") long roundMillis) {
+        this.walletService = walletService;
+        this.messagingTemplate = messagingTemplate;
+        this.provablyFairService = provablyFairService;
+        this.roundMillis = roundMillis;
+    }
+
+    @PostConstruct
+    public synchronized void open() {
+        closesAt = System.currentTimeMillis() + roundMillis;
+    }
+
+    public synchronized RouletteTableStateDto getTableState() {
+        List<RouletteTablePlayerDto> players = bettors.values().stream().map(bettor -> bettor.toDto(null)).toList();
+        return new RouletteTableStateDto(round, closesAt, players, List.copyOf(recentNumbers));
+    }
+
+    /**
+     * Adds bets to the player's entry in the current round and reserves their stake.
+     * @param uid Identifier of the user.
+     * @param displayName Name shown to other players.
+     * @param bets Bets to add.
+     * @throws IllegalArgumentException if a bet is invalid or the player exceeds {@value RouletteSlip#MAX_BETS} bets.
+     */
+    public void placeBets(String uid, String displayName, List<BetRequest> bets) {
+        RouletteSlip slip = RouletteSlip.of(bets);
+        // Reserved outside the table lock, since loading an account may hit storage
+        walletService.reserveBet(uid, slip.stake());
+
+        RouletteTableEventDto event;
+        synchronized (this) {
+            Bettor bettor = bettors.get(uid);
+            if (bettor != null && bettor.betCount + slip.size() > RouletteSlip.MAX_BETS) {
+                walletService.releaseBet(uid, slip.stake());
+                throw new IllegalArgumentException(MessageFormat.format("At most {0} bets per round.", RouletteSlip.MAX_BETS));
+            }
+            if (bettor == null) {
+                bettor = new Bettor(uid, displayName);
+                bettors.put(uid, bettor);
+            }
+            bettor.add(slip);
+            event = new RouletteTableEventDto(RouletteTableEventDto.Type.BET, round, closesAt, null, null, List.of(bettor.toDto(null)));
+        }
+        messagingTemplate.convertAndSend(TABLE_TOPIC, event);
+    }
+
+    /**
+     * Closes the current round, spins once and settles every player in one batch.
+     */
+    @Scheduled(fixedRateString = "${casino.roulette.table.round-ms:20000}", initialDelayString = "${casino.roulette.table.round-ms:20000}")
+    public void playRound() {
+        long closedRound;
+        long nextClosesAt;
+        Collection<Bettor> roundBettors;
+        synchronized (this) {
+            closedRound = round++;
+            roundBettors = bettors.values();
+            bettors = new LinkedHashMap<>();
+            nextClosesAt = System.currentTimeMillis() + roundMillis;
+            closesAt = nextClosesAt;
+        }
+
+        FairDraw draw = provablyFairService.draw(FairGame.ROULETTE_TABLE);
+        int winningNumber = draw.outcome();
+        List<Settlement> settlements = new ArrayList<>(roundBettors.size());
+        List<RouletteTablePlayerDto> results = new ArrayList<>(roundBettors.size());
+        Date now = new Date();
+        for (Bettor bettor : roundBettors) {
+            BigDecimal payout = bettor.payout(winningNumber);
+            GameHistory history = createGameHistory(bettor, payout, winningNumber, now);
+            history.setFairHash(draw.hash());
+            settlements.add(new Settlement(bettor.uid, bettor.stake, payout, history));
+            results.add(bettor.toDto(payout));
+        }
+
+        try {
+            walletService.settleRound(settlements);
+        } catch (RuntimeException e) {
+            // settleRound only throws if nothing was settled; give the reserved stakes back and void the round
+            log.error("Settlement of roulette round {} failed, voiding {} bets.", closedRound, settlements.size(), e);
+            roundBettors.forEach(bettor -> walletService.releaseBet(bettor.uid, bettor.stake));
+            provablyFairService.voidDraw(FairGame.ROULETTE_TABLE, draw);
+            messagingTemplate.convertAndSend(TABLE_TOPIC, new RouletteTableEventDto(RouletteTableEventDto.Type.VOID,
+                    closedRound, nextClosesAt, null, draw.hash(), roundBettors.stream().map(bettor -> bettor.toDto(null)).toList()));
+            return;
+        }
+
+        provablyFairService.reveal(FairGame.ROULETTE_TABLE, draw);
+        synchronized (this) {
+            recentNumbers.addFirst(winningNumber);
+            if (recentNumbers.size() > RECENT_NUMBERS) {
+                recentNumbers.removeLast();
+            }
+        }
+        messagingTemplate.convertAndSend(TABLE_TOPIC,
+                new RouletteTableEventDto(RouletteTableEventDto.Type.RESULT, closedRound, nextClosesAt, winningNumber, draw.hash(), results));
+        log.info("Roulette round {} settled: winning number {}, {} players.", closedRound, winningNumber, settlements.size());
+    }
+
+    private static GameHistory createGameHistory(Bettor bettor, BigDecimal payout, int winningNumber, Date timestamp) {
+        GameHistory history = new GameHistory();
+        history.setUserId(bettor.uid);
+        history.setGameType(GameType.ROULETTE);
+        history.setBetAmount(bettor.stake);
+        history.setWinAmount(payout);
+        history.setResult(String.valueOf(winningNumber));
+        history.setTimestamp(timestamp);
+        return history;
+    }
+
+    private static final class Bettor {
+        private final String uid;
+        private final String displayName;
+        private final List<RouletteSlip> slips = new ArrayList<>();
+        private BigDecimal stake = BigDecimal.ZERO;
+        private int betCount;
+
+        private Bettor(String uid, String displayName) {
+            this.uid = uid;
+            this.displayName = displayName;
+        }
+
+        private void add(RouletteSlip slip) {
+            slips.add(slip);
+            stake = stake.add(slip.stake());
+            betCount += slip.size();
+        }
+
+        private BigDecimal payout(int pocket) {
+            BigDecimal payout = BigDecimal.ZERO;
+            for (RouletteSlip slip : slips) {
+                payout = payout.add(slip.payout(pocket));
+            }
+            return payout;
+        }
+
+        private RouletteTablePlayerDto toDto(BigDecimal payout) {
+            return new RouletteTablePlayerDto(displayName, betCount, stake, payout);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pl.casino.be.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.casino.be.storage.UserRepository;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory uid -> displayName index for admin views.
+ * Names are loaded lazily, only for the UIDs that are actually requested, and reloaded with the next batched read
+ * once they are older than the TTL, so a name changed on another node shows up within that time.
+ * Entries are evicted least-recently-used once the memory budget is exceeded.
+ */
+@Slf4j
+@Service
+public class UserDirectoryService {
+
+    // Rough per-entry overhead of the map node and two String objects, on top of the characters
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final UserRepository userRepository;
+    private final long memoryBudgetBytes;
+    private final long ttlNanos;
+
+    // Guarded by this; access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Name> names = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    public UserDirectoryService(UserRepository userRepository,
+                                @Value("${casino.user-directory.memory-budget-bytes:4194304}") long memoryBudgetBytes,
+                                @Value("${casino.user-directory.ttl-ms:60000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    private record Name(String displayName, long loadedAt) {}
+
+    /**
+     * Resolves display names, fetching the ones that are not cached or have expired in a single batched read.
+     * @param uids Identifiers of the users.
+     * @return Display name per UID; users without a profile or a name are left out.
+     */
+    public Map<String, String> resolve(Collection<String> uids) {
+        Map<String, String> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (String uid : uids) {
+                Name name = names.get(uid);
+                if (name != null && now - name.loadedAt() < ttlNanos) {
+                    result.put(uid, name.displayName());
+                } else if (uid != null) {
+                    missing.add(uid);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            userRepository.findDisplayNames(missing).forEach((uid, name) -> {
+                if (name != null) {
+                    result.put(uid, name);
+                    put(uid, name);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Records the display name of a user, e.g. right after the profile was created.
+     */
+    public synchronized void put(String uid, String displayName) {
+        if (uid == null || displayName == null) {
+            return;
+        }
+        Name previous = names.put(uid, new Name(displayName, System.nanoTime()));
+        if (previous != null) {
+            usedBytes -= sizeOf(uid, previous.displayName());
+        }
+        usedBytes += sizeOf(uid, displayName);
+        evictOverBudget();
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Name>> eldest = names.entrySet().iterator();
+        while (usedBytes > memoryBudgetBytes && eldest.hasNext()) {
+            Map.Entry<String, Name> entry = eldest.next();
+            usedBytes -= sizeOf(entry.getKey(), entry.getValue().displayName());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(String uid, String displayName) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (uid.length() + displayName.length());
+    }
+}
@@ -1,82 +1,149 @@
 package pl.casino.be.service;
 
-import com.google.cloud.firestore.*;
-import com.google.firebase.auth.FirebaseToken;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import pl.casino.be.dto.GameHistoryPageDto;
 import pl.casino.be.dto.UserProfileDto;
+import pl.casino.be.exception.StorageException;
 import pl.casino.be.model.GameHistory;
 import pl.casino.be.model.User;
+import pl.casino.be.security.VerifiedToken;
+import pl.casino.be.storage.GameHistoryCursor;
+import pl.casino.be.service.ledger.BalanceLedger;
+import pl.casino.be.storage.GameHistoryRepository;
+import pl.casino.be.storage.UserRepository;
 
 import java.math.BigDecimal;
 import java.text.MessageFormat;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class UserService {
 
-    private final Firestore firestore;
-    private static final String USERS_COLLECTION = "users";
-    private static final String GAME_HISTORY_COLLECTION = "game_history";
+    private final UserRepository userRepository;
+    private final GameHistoryRepository gameHistoryRepository;
+    private final BalanceLedger balanceLedger;
+    private final CasinoStatisticsService statisticsService;
+    private final UserDirectoryService userDirectoryService;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 500;
 
-    public UserService(Firestore firestore) {
-        this.firestore = firestore;
+    // UIDs confirmed to have a profile, so the existence check usually runs once per user on this node
+    private final Set<String> knownUsers = ConcurrentHashMap.newKeySet();
+    private final int maxKnownUsers;
+
+    public UserService(UserRepository userRepository, GameHistoryRepository gameHistoryRepository,
+                       BalanceLedger balanceLedger, CasinoStatisticsService statisticsService,
+                       UserDirectoryService userDirectoryService,
+                       @Value("${casino.users.known-users.max-entries:100000}") int maxKnownUsers) {
+        this.userRepository = userRepository;
+        this.gameHistoryRepository = gameHistoryRepository;
+        this.balanceLedger = balanceLedger;
+        this.statisticsService = statisticsService;
+        this.userDirectoryService = userDirectoryService;
+        this.maxKnownUsers = maxKnownUsers;
     }
 
     /**
-     * Checks if a user exists in Firestore by their UID.
+     * Checks if a user exists in storage by their UID.
      * If not, creates a new user document with initial data.
-     * @param token FirebaseToken containing user info.
+     * @param token Verified ID token containing user info.
+     * @throws StorageException If the user could not be looked up or created.
      */
-    public void findOrCreateUser(FirebaseToken token) {
-        DocumentReference userRef = firestore.collection(USERS_COLLECTION).document(token.getUid());
+    public void findOrCreateUser(VerifiedToken token) {
+        if (knownUsers.contains(token.uid())) {
+            return;
+        }
         try {
-            if (!userRef.get().get().exists()) {
-                log.info("Creating a new user profile for UID: {}", token.getUid());
+            if (userRepository.findById(token.uid()).isEmpty()) {
+                log.info("Creating a new user profile for UID: {}", token.uid());
                 User newUser = new User();
-                newUser.setUid(token.getUid());
-                newUser.setEmail(token.getEmail());
-                newUser.setDisplayName(token.getName());
+                newUser.setUid(token.uid());
+                newUser.setEmail(token.email());
+                newUser.setDisplayName(token.name());
                 newUser.setBalance(BigDecimal.ZERO);
 
-                userRef.set(newUser).get();
-                log.info("Successfully created new user: {}", token.getEmail());
+                userRepository.save(newUser);
+                statisticsService.recordUserCreated();
+                userDirectoryService.put(newUser.getUid(), newUser.getDisplayName());
+                log.info("Successfully created new user: {}", token.email());
             }
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Error while trying to find or create user with UID: {}", token.getUid(), e);
-            Thread.currentThread().interrupt();
+            rememberKnownUser(token.uid());
+        } catch (StorageException e) {
+            log.error("Error while trying to find or create user with UID: {}", token.uid(), e);
+            throw e;
         }
     }
 
+    // When the set is full an arbitrary tenth is forgotten; those users are simply looked up again
+    private void rememberKnownUser(String uid) {
+        if (knownUsers.size() >= maxKnownUsers) {
+            Iterator<String> uids = knownUsers.iterator();
+            int excess = knownUsers.size() - maxKnownUsers + Math.max(1, maxKnownUsers / 10);
+            while (excess-- > 0 && uids.hasNext()) {
+                uids.next();
+                uids.remove();
+            }
+        }
+        knownUsers.add(uid);
+    }
+
     /**
      * Gets the full profile of a user, including basic info, last 20 transactions, and last 20 games.
      * @param uid User ID to retrieve the profile for.
      * @return DTO containing user profile data.
      */
     public UserProfileDto getUserProfile(String uid) {
-        DocumentReference userRef = firestore.collection(USERS_COLLECTION).document(uid);
         try {
-            DocumentSnapshot userDoc = userRef.get().get();
-            if (userDoc.exists()) {
-                User user = userDoc.toObject(User.class);
-                assert user != null;
-                return new UserProfileDto(user.getUid(), user.getEmail(), user.getDisplayName(), user.getBalance());
-            }
-            throw new RuntimeException(MessageFormat.format("User not found with UID: {0}", uid));
-        } catch (InterruptedException | ExecutionException e) {
+            User user = userRepository.findById(uid)
+                    .orElseThrow(() -> new RuntimeException(MessageFormat.format("User not found with UID: {0}", uid)));
+            // The ledger is ahead of storage while moves are waiting to be flushed
+            BigDecimal balance = balanceLedger.balanceOf(uid).orElse(user.getBalance());
+            return new UserProfileDto(user.getUid(), user.getEmail(), user.getDisplayName(), balance);
+        } catch (StorageException e) {
             log.error("Error retrieving profile for UID: {}", uid, e);
-            Thread.currentThread().interrupt();
             throw new RuntimeException("Failed to retrieve user profile.", e);
         }
     }
 
-    public List<GameHistory> getGameHistoryForUser(String uid) throws ExecutionException, InterruptedException {
-        return firestore.collection(GAME_HISTORY_COLLECTION)
-                .whereEqualTo("userId", uid)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get().get().toObjects(GameHistory.class);
+    /**
+     * Gets one page of the user's game history, newest first.
+     * @param uid User ID to retrieve the history for.
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @param limit Page size, capped at {@value #MAX_PAGE_SIZE}.
+     * @return Page of games and the cursor of the next page.
+     */
+    public GameHistoryPageDto getGameHistoryForUser(String uid, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        GameHistoryCursor after = cursor == null || cursor.isBlank() ? null : GameHistoryCursor.decode(cursor);
+        List<GameHistory> games = gameHistoryRepository.findByUser(uid, after, pageSize);
+        String nextCursor = games.size() < pageSize ? null : GameHistoryCursor.after(games.getLast()).encode();
+        return new GameHistoryPageDto(games, nextCursor);
+    }
+
+    /**
+     * Walks the user's whole game history page by page, so memory use does not depend on its length.
+     * @param uid User ID to export the history for.
+     * @param consumer Called for every game, newest first.
+     * @param afterPage Called after each page, e.g. to flush the response.
+     */
+    public void exportGameHistory(String uid, Consumer<GameHistory> consumer, Runnable afterPage) {
+        GameHistoryCursor after = null;
+        List<GameHistory> page;
+        do {
+            page = gameHistoryRepository.findByUser(uid, after, EXPORT_PAGE_SIZE);
+            page.forEach(consumer);
+            afterPage.run();
+            if (!page.isEmpty()) {
+                after = GameHistoryCursor.after(page.getLast());
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
     }
 
-}
\ No newline at end of file
+}
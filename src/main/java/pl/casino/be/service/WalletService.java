@@ -1,31 +1,35 @@
 package pl.casino.be.service;
 
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import pl.casino.be.exception.InsufficientFundsException;
-import pl.casino.be.model.Transaction;
+import pl.casino.be.exception.LedgerSyncException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
 import pl.casino.be.model.TransactionType;
-import pl.casino.be.model.User;
+import pl.casino.be.service.ledger.BalanceLedger;
+import pl.casino.be.service.ledger.Settlement;
 
 import java.math.BigDecimal;
-import java.text.MessageFormat;
-import java.util.Date;
-import java.util.UUID;
-import java.util.concurrent.ExecutionException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 public class WalletService {
 
-    private final Firestore firestore;
-    private static final String USERS_COLLECTION = "users";
-    private static final String TRANSACTIONS_COLLECTION = "transactions";
+    private final BalanceLedger balanceLedger;
+    private final CasinoStatisticsService statisticsService;
+    private final DashboardService dashboardService;
+    private final CasinoMetrics metrics;
 
-    public WalletService(Firestore firestore) {
-        this.firestore = firestore;
+    public WalletService(BalanceLedger balanceLedger, CasinoStatisticsService statisticsService,
+                         DashboardService dashboardService, CasinoMetrics metrics) {
+        this.balanceLedger = balanceLedger;
+        this.statisticsService = statisticsService;
+        this.dashboardService = dashboardService;
+        this.metrics = metrics;
     }
 
     /**
@@ -76,52 +80,141 @@ public class WalletService {
     }
 
     /**
-     * Updates the user's balance and logs the transaction atomically.
-         * @param uid Identifier of the user.
+     * Pays out several wins with a single ledger write.
+     * @param winnings Winning amount per user; non-positive amounts are skipped.
+     */
+    public void processWins(Map<String, BigDecimal> winnings) {
+        Map<String, BigDecimal> credits = new LinkedHashMap<>();
+        winnings.forEach((uid, amount) -> {
+            if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                credits.put(uid, amount);
+            }
+        });
+        if (credits.isEmpty()) {
+            return;
+        }
+        balanceLedger.creditAll(credits, TransactionType.WIN);
+        credits.values().forEach(amount -> statisticsService.recordTransaction(TransactionType.WIN, amount));
+        log.debug("Paid out {} wins in one batch.", credits.size());
+    }
+
+    /**
+     * Returns the stakes of a round that was called off with a single ledger write. Refunds are
+     * their own transaction type, so they are not counted as wins.
+     * @param stakes Stake to return per user; non-positive amounts are skipped.
+     */
+    public void refundBets(Map<String, BigDecimal> stakes) {
+        Map<String, BigDecimal> credits = new LinkedHashMap<>();
+        stakes.forEach((uid, amount) -> {
+            if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                credits.put(uid, amount);
+            }
+        });
+        if (credits.isEmpty()) {
+            return;
+        }
+        balanceLedger.creditAll(credits, TransactionType.REFUND);
+        credits.values().forEach(amount -> statisticsService.recordTransaction(TransactionType.REFUND, amount));
+        log.debug("Refunded {} bets in one batch.", credits.size());
+    }
+
+    /**
+     * Settles a whole game outcome at once: debits the stake, credits the payout and records the game.
+     * The moves and the game record are written to storage together, so a crash cannot keep the stake and lose the win.
+     * @param uid Identifier of the user.
+     * @param stake Bet amount (positive).
+     * @param payout Winning amount, zero for a loss.
+     * @param game Game record to store with the moves.
+     */
+    public void settleGame(String uid, BigDecimal stake, BigDecimal payout, GameHistory game) {
+        if (stake.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Bet amount must be positive.");
+        }
+        if (payout.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("Payout must not be negative.");
+        }
+        try {
+            balanceLedger.settle(uid, stake, payout, game);
+        } catch (InsufficientFundsException e) {
+            metrics.insufficientFunds();
+            throw e;
+        }
+        recordSettledGame(stake, payout, game);
+        dashboardService.recordGame(game);
+        log.debug("Game settled for user {}, stake: {}, payout: {}", uid, stake, payout);
+    }
+
+    /**
+     * Reserves the stake of a bet in a shared round. The funds stay in the balance but cannot be spent
+     * until the round is settled with {@link #settleRound} or the reservation is released.
+     * @param uid Identifier of the user.
+     * @param amount Bet amount (positive).
+     */
+    public void reserveBet(String uid, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Bet amount must be positive.");
+        }
+        try {
+            balanceLedger.reserve(uid, amount);
+        } catch (InsufficientFundsException e) {
+            metrics.insufficientFunds();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels a reservation made with {@link #reserveBet}.
+     */
+    public void releaseBet(String uid, BigDecimal amount) {
+        balanceLedger.release(uid, amount);
+    }
+
+    /**
+     * Settles all players of a shared round against their reserved stakes in one ledger write.
+     * A failed journal sync is only logged: the round is settled in memory and will be flushed, so it stands.
+     * @param settlements Outcome per player.
+     * @throws RuntimeException if the round was not settled; the reservations are untouched.
+     */
+    public void settleRound(List<Settlement> settlements) {
+        if (settlements.isEmpty()) {
+            return;
+        }
+        try {
+            balanceLedger.settleReserved(settlements);
+        } catch (LedgerSyncException e) {
+            log.error("Shared round of {} players settled, but the ledger journal could not be synced: {}",
+                    settlements.size(), e.getCause().getMessage());
+        }
+        for (Settlement settlement : settlements) {
+            recordSettledGame(settlement.stake(), settlement.payout(), settlement.game());
+        }
+        dashboardService.recordGames(settlements.stream().map(Settlement::game).toList());
+        log.debug("Settled {} players of a shared round.", settlements.size());
+    }
+
+    private void recordSettledGame(BigDecimal stake, BigDecimal payout, GameHistory game) {
+        statisticsService.recordTransaction(TransactionType.BET, stake);
+        if (payout.signum() > 0) {
+            statisticsService.recordTransaction(TransactionType.WIN, payout);
+        }
+        statisticsService.recordGame(game);
+    }
+
+    /**
+     * Applies the move to the in-process ledger. The ledger acknowledges it once it is journaled locally
+     * and writes the balance and transaction record to Firestore in the background.
+     * @param uid Identifier of the user.
      * @param amount Amount to add (positive) or subtract (negative).
      * @param type Transaction type.
      */
     private void updateBalance(String uid, BigDecimal amount, TransactionType type) {
-        final DocumentReference userRef = firestore.collection(USERS_COLLECTION).document(uid);
-        final DocumentReference transactionRef = firestore.collection(TRANSACTIONS_COLLECTION).document(UUID.randomUUID().toString());
-
         try {
-            firestore.runTransaction(tx -> {
-                DocumentSnapshot userDoc = tx.get(userRef).get();
-                if (!userDoc.exists()) {
-                    throw new IllegalStateException(MessageFormat.format("User not found: {0}", uid));
-                }
-                User user = userDoc.toObject(User.class);
-                assert user != null;
-                BigDecimal currentBalance = user.getBalance();
-                BigDecimal newBalance = currentBalance.add(amount);
-
-                if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                    throw new InsufficientFundsException(MessageFormat.format("Insufficient funds for user: {0}", uid));
-                }
-
-                // Update user balance
-                tx.update(userRef, "balance", newBalance);
-
-                // Create transaction record
-                Transaction newTransaction = new Transaction();
-                newTransaction.setUserId(uid);
-                newTransaction.setAmount(amount.abs());
-                newTransaction.setType(type);
-                newTransaction.setTimestamp(new Date());
-                tx.set(transactionRef, newTransaction);
-
-                return null;
-            }).get();
-            log.info("Transaction successful for user {}, type: {}, amount: {}", uid, type, amount);
-        } catch (InterruptedException | ExecutionException e) {
-            // Rethrow custom exceptions
-            if (e.getCause() instanceof InsufficientFundsException) {
-                throw (InsufficientFundsException) e.getCause();
-            }
-            log.error("Transaction failed for user {}: {}", uid, e.getMessage());
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Database transaction failed.", e);
+            balanceLedger.apply(uid, amount, type);
+        } catch (InsufficientFundsException e) {
+            metrics.insufficientFunds();
+            throw e;
         }
+        statisticsService.recordTransaction(type, amount);
+        log.debug("Transaction successful for user {}, type: {}, amount: {}", uid, type, amount);
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package pl.casino.be.service.cashout;
+
+import java.math.BigDecimal;
+
+/**
+ * Player action relayed from the node the player is connected to, to the node that runs the rounds.
+ * @param type Action.
+ * @param uid Identifier of the user, already authenticated by the relaying node.
+ * @param sessionId WebSocket session the action came from, which is told if the leader rejects it.
+ * @param displayName Name shown in the player list (BET only).
+ * @param amount Bet amount (BET only).
+ * @param autoCashout Auto cash-out multiplier, or null (BET only).
+ */
+public record CashoutCommand(
+        Type type,
+        String uid,
+        String sessionId,
+        String displayName,
+        BigDecimal amount,
+        BigDecimal autoCashout
+) {
+    public enum Type { BET, CASHOUT, SYNC }
+}
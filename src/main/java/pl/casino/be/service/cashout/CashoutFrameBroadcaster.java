@@ -0,0 +1,157 @@
+package pl.casino.be.service.cashout;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.casino.be.dto.CashoutFrameDto;
+import pl.casino.be.dto.PlayerListDeltaDto;
+import pl.casino.be.service.cluster.ClusterNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces Cosmic Cashout state changes (multiplier, player list deltas, state transitions) into one frame
+ * per broadcast interval on /topic/cashout/frame. Each frame is serialized once and the same pre-encoded
+ * payload is handed to the broker for every subscriber, on every node of the cluster.
+ * Only the leader, which runs the rounds, publishes frames. Frames that only move the multiplier may be
+ * skipped for clients that fall behind, so frame numbers seen by a client are increasing but not always consecutive.
+ * A frame carries one state transition, so a second transition within the interval first sends the pending frame.
+ */
+@Slf4j
+@Component
+public class CashoutFrameBroadcaster {
+
+    public static final String FRAME_TOPIC = "/topic/cashout/frame";
+
+    private final ClusterNode clusterNode;
+    private final ObjectMapper objectMapper;
+
+    private volatile long multiplier = FixedPointMultiplier.ONE;
+    private long lastSentMultiplier = -1;
+    private long frame;
+
+    // Held while a frame is built and sent, so frames go out in frame number order; taken before this
+    private final Object sendLock = new Object();
+
+    // Guarded by this
+    private String pendingState;
+    private long pendingCrashPoint = -1;
+    private List<PlayerListDeltaDto> pendingDeltas = new ArrayList<>();
+
+    public CashoutFrameBroadcaster(ClusterNode clusterNode, ObjectMapper objectMapper) {
+        this.clusterNode = clusterNode;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records the latest multiplier. Called from the round loop on every tick, so it only stores a primitive.
+     */
+    public void multiplier(long hundredths) {
+        multiplier = hundredths;
+    }
+
+    public void state(String state) {
+        synchronized (sendLock) {
+            flushPendingState();
+            synchronized (this) {
+                pendingState = state;
+            }
+        }
+    }
+
+    public void crash(long crashPoint) {
+        synchronized (sendLock) {
+            flushPendingState();
+            synchronized (this) {
+                multiplier = crashPoint;
+                pendingCrashPoint = crashPoint;
+                pendingState = "CRASHED";
+            }
+        }
+    }
+
+    /**
+     * Ends the round for clients after this node lost the leader lease in the middle of it: sends what is queued,
+     * then a CRASHED frame without a crash point, since the round was called off before its crash point.
+     * Unlike other frames these are sent although this node no longer leads.
+     */
+    public void cancelRound() {
+        synchronized (sendLock) {
+            publishPending();
+            synchronized (this) {
+                pendingState = "CRASHED";
+            }
+            publishPending();
+        }
+    }
+
+    // Sends the frame of an earlier transition that is still waiting, so clients see every transition in order
+    private void flushPendingState() {
+        boolean pending;
+        synchronized (this) {
+            pending = pendingState != null;
+        }
+        if (pending) {
+            publishFrame();
+        }
+    }
+
+    /**
+     * Queues a player list delta. Callers add deltas in sequence order.
+     */
+    public synchronized void delta(PlayerListDeltaDto delta) {
+        pendingDeltas.add(delta);
+    }
+
+    /**
+     * Sends everything queued since the last frame. Also called right before anything else is published
+     * that clients must see after the queued changes, e.g. the player list reset that follows a crash.
+     */
+    @Scheduled(fixedRateString = "${casino.cashout.frame-ms:100}")
+    public void publishFrame() {
+        if (!clusterNode.isLeader()) {
+            return;
+        }
+        synchronized (sendLock) {
+            publishPending();
+        }
+    }
+
+    private void publishPending() {
+        CashoutFrameDto dto;
+        boolean multiplierOnly;
+        synchronized (this) {
+            long currentMultiplier = multiplier;
+            if (pendingState == null && pendingCrashPoint < 0 && pendingDeltas.isEmpty() && currentMultiplier == lastSentMultiplier) {
+                return;
+            }
+            dto = new CashoutFrameDto(
+                    ++frame,
+                    pendingState,
+                    FixedPointMultiplier.toBigDecimal(currentMultiplier),
+                    pendingCrashPoint >= 0 ? FixedPointMultiplier.toBigDecimal(pendingCrashPoint) : null,
+                    pendingDeltas
+            );
+            multiplierOnly = pendingState == null && pendingCrashPoint < 0 && pendingDeltas.isEmpty();
+            lastSentMultiplier = currentMultiplier;
+            pendingState = null;
+            pendingCrashPoint = -1;
+            pendingDeltas = new ArrayList<>();
+        }
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            // A frame that only moves the multiplier is superseded by the next one, slow clients may skip it
+            if (multiplierOnly) {
+                clusterNode.publishSupersedableToClients(FRAME_TOPIC, json);
+            } else {
+                clusterNode.publishToClients(FRAME_TOPIC, json);
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize Cosmic Cashout frame {}", dto.frame(), e);
+        }
+    }
+}
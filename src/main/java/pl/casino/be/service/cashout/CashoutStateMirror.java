@@ -0,0 +1,70 @@
+package pl.casino.be.service.cashout;
+
+import pl.casino.be.dto.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * A follower's copy of the Cosmic Cashout state, rebuilt from the same frames, player list resets and crash
+ * history the leader publishes to clients, so followers can answer state and snapshot requests locally.
+ */
+public class CashoutStateMirror {
+
+    // Guarded by this
+    private String gameState = "WAITING";
+    private BigDecimal multiplier = FixedPointMultiplier.toBigDecimal(FixedPointMultiplier.ONE);
+    private long playerListSeq;
+    private final Map<Integer, PlayerStateDto> players = new HashMap<>();
+    private List<BigDecimal> crashHistory = List.of();
+
+    public synchronized void applyFrame(CashoutFrameDto frame) {
+        if (frame.state() != null) {
+            gameState = frame.state();
+        }
+        if (frame.multiplier() != null) {
+            multiplier = frame.multiplier();
+        }
+        if (frame.players() == null) {
+            return;
+        }
+        for (PlayerListDeltaDto delta : frame.players()) {
+            // Deltas at or below the sequence of the last snapshot are already part of it
+            if (delta.seq() <= playerListSeq) continue;
+            playerListSeq = delta.seq();
+            players.put(delta.seat(), delta.player());
+        }
+    }
+
+    public synchronized void applyPlayerList(PlayerListSnapshotDto snapshot) {
+        players.clear();
+        snapshot.players().forEach(player -> players.put(player.getSeat(), player));
+        playerListSeq = snapshot.seq();
+    }
+
+    public synchronized void applyCrashHistory(List<BigDecimal> history) {
+        crashHistory = List.copyOf(history);
+    }
+
+    /**
+     * Replaces the mirror with a full state sent by the leader, e.g. when this node joins a running cluster.
+     */
+    public synchronized void applyState(CosmicCashoutStateDto state) {
+        gameState = state.gameState();
+        multiplier = state.currentMultiplier();
+        applyPlayerList(new PlayerListSnapshotDto(state.playerListSeq(), state.playersInRound()));
+        applyCrashHistory(state.crashHistory());
+    }
+
+    public synchronized PlayerListSnapshotDto playerList() {
+        List<PlayerStateDto> list = players.values().stream()
+                .sorted(Comparator.comparing(PlayerStateDto::getBetAmount).reversed())
+                .toList();
+        return new PlayerListSnapshotDto(playerListSeq, list);
+    }
+
+    public synchronized CosmicCashoutStateDto state() {
+        PlayerListSnapshotDto snapshot = playerList();
+        return new CosmicCashoutStateDto(gameState, multiplier, snapshot.players(), snapshot.seq(), crashHistory);
+    }
+}
@@ -0,0 +1,68 @@
+package pl.casino.be.service.cashout;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Cosmic Cashout multiplier arithmetic on primitive {@code long} values in hundredths (1.00x == 100).
+ * The multiplier is a pure function of the time elapsed since the round started, so any thread can
+ * compute the exact value at the moment it needs it. {@link BigDecimal} is only produced for the wallet
+ * and for DTOs, from a pre-built cache so the round loop does not allocate.
+ */
+public final class FixedPointMultiplier {
+
+    public static final long ONE = 100;
+    // The multiplier grows by 0.01x every 100 ms.
+    private static final long NANOS_PER_STEP = 100_000_000L;
+    private static final int CACHE_SIZE = 10_001; // up to 100.00x
+
+    private static final BigDecimal[] CACHE = new BigDecimal[CACHE_SIZE];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = BigDecimal.valueOf(i, 2);
+        }
+    }
+
+    private FixedPointMultiplier() {}
+
+    /**
+     * @param elapsedNanos Monotonic time since the round started.
+     * @return Multiplier in hundredths at that moment.
+     */
+    public static long at(long elapsedNanos) {
+        return ONE + Math.max(0, elapsedNanos) / NANOS_PER_STEP;
+    }
+
+    /**
+     * @param hundredths Multiplier in hundredths.
+     * @return Monotonic time since the round start at which the multiplier reaches the given value.
+     */
+    public static long elapsedNanosFor(long hundredths) {
+        return Math.max(0, hundredths - ONE) * NANOS_PER_STEP;
+    }
+
+    public static BigDecimal toBigDecimal(long hundredths) {
+        if (hundredths >= 0 && hundredths < CACHE_SIZE) {
+            return CACHE[(int) hundredths];
+        }
+        return BigDecimal.valueOf(hundredths, 2);
+    }
+
+    /**
+     * @param multiplier Multiplier such as 2.5; anything below 0.01 is truncated.
+     * @return Multiplier in hundredths.
+     */
+    public static long fromBigDecimal(BigDecimal multiplier) {
+        return multiplier.setScale(2, RoundingMode.DOWN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @param betAmount Stake.
+     * @param hundredths Multiplier in hundredths.
+     * @return Payout for the stake at the given multiplier, rounded down to cents.
+     */
+    public static BigDecimal payout(BigDecimal betAmount, long hundredths) {
+        return betAmount.multiply(toBigDecimal(hundredths)).setScale(2, RoundingMode.DOWN);
+    }
+}
@@ -0,0 +1,203 @@
+package pl.casino.be.service.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import pl.casino.be.config.SlowConsumerGuard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * This node's membership in the cluster. Holds the leader lease when it can get it, so exactly one node runs
+ * the authoritative game rounds, and fans STOMP broadcasts out through the {@link ClusterTransport} so every
+ * node serves the same topics to its own WebSocket clients.
+ */
+@Slf4j
+@Component
+public class ClusterNode {
+
+    private static final String SUPERSEDABLE_SUFFIX = "#supersedable";
+    // Messages for a single WebSocket session, delivered by whichever node holds it
+    private static final String SESSION_CHANNEL = "cluster.session-messages";
+
+    private final ClusterTransport transport;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final Duration lease;
+
+    private volatile boolean leader;
+
+    public ClusterNode(ClusterTransport transport, SimpMessagingTemplate messagingTemplate, SimpUserRegistry userRegistry,
+                       ObjectMapper objectMapper, @Value("${casino.cluster.node-id:}") String nodeId,
+                       @Value("${casino.cluster.lease-ms:5000}") long leaseMillis) {
+        this.transport = transport;
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.lease = Duration.ofMillis(leaseMillis);
+    }
+
+    @PostConstruct
+    public void join() {
+        subscribe(SESSION_CHANNEL, SessionMessage.class, this::deliverToSession);
+        renewLease();
+    }
+
+    /**
+     * Renews the leader lease, or tries to take it over if the leader stopped renewing it.
+     */
+    @Scheduled(fixedRateString = "${casino.cluster.lease-renew-ms:1000}")
+    public void renewLease() {
+        boolean acquired = transport.tryAcquireLeadership(nodeId, lease);
+        if (acquired != leader) {
+            log.info(acquired ? "Node {} is now the cluster leader." : "Node {} lost the cluster leadership.", nodeId);
+        }
+        leader = acquired;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Sends a message to the leader, e.g. a command a follower received from one of its clients.
+     */
+    public void sendToLeader(String channel, Object message) {
+        transport.sendToLeader(channel, toJson(message));
+    }
+
+    /**
+     * Sends a message to every node, including this one.
+     */
+    public void broadcast(String channel, Object message) {
+        transport.broadcast(channel, toJson(message));
+    }
+
+    /**
+     * Subscribes to messages on a channel, decoded as the given type.
+     */
+    public <T> void subscribe(String channel, Class<T> type, Consumer<T> listener) {
+        transport.subscribe(nodeId, channel, payload -> listener.accept(fromJson(payload, type)));
+    }
+
+    /**
+     * Subscribes to messages on a channel that only matter while this node follows; the leader skips decoding them.
+     */
+    public <T> void subscribeAsFollower(String channel, Class<T> type, Consumer<T> listener) {
+        transport.subscribe(nodeId, channel, payload -> {
+            if (!leader) {
+                listener.accept(fromJson(payload, type));
+            }
+        });
+    }
+
+    /**
+     * Publishes a pre-serialized JSON payload to a STOMP destination on every node.
+     * The channel is the destination itself, so each node relays what it receives to its own broker.
+     */
+    public void publishToClients(String destination, byte[] json) {
+        transport.broadcast(destination, json);
+    }
+
+    public void publishToClients(String destination, Object payload) {
+        publishToClients(destination, toJson(payload));
+    }
+
+    /**
+     * Publishes a payload that the next one on the same destination replaces, so it may be dropped for clients
+     * that fall behind (see {@link SlowConsumerGuard}).
+     */
+    public void publishSupersedableToClients(String destination, byte[] json) {
+        transport.broadcast(destination + SUPERSEDABLE_SUFFIX, json);
+    }
+
+    /**
+     * Relays everything published to the destination on any node to this node's WebSocket clients.
+     */
+    public void relayToClients(String destination) {
+        transport.subscribe(nodeId, destination, payload -> messagingTemplate.send(destination, encode(payload, false)));
+        transport.subscribe(nodeId, destination + SUPERSEDABLE_SUFFIX,
+                payload -> messagingTemplate.send(destination, encode(payload, true)));
+    }
+
+    /**
+     * Sends a payload to one WebSocket session of a user, e.g. the rejection of a command a follower relayed.
+     * Only the node the session is connected to delivers it.
+     */
+    public void sendToSession(String user, String sessionId, String destination, Object payload) {
+        broadcast(SESSION_CHANNEL, new SessionMessage(user, sessionId, destination, objectMapper.valueToTree(payload)));
+    }
+
+    private void deliverToSession(SessionMessage message) {
+        SimpUser user = userRegistry.getUser(message.user());
+        // Without this check the user destination resolver falls back to every session of the user on this node
+        if (user == null || user.getSession(message.sessionId()) == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(message.sessionId());
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(message.user(), message.destination(), message.payload(),
+                headers.getMessageHeaders());
+    }
+
+    @PreDestroy
+    public void leave() {
+        transport.releaseLeadership(nodeId);
+        leader = false;
+    }
+
+    private byte[] toJson(Object message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cluster message", e);
+        }
+    }
+
+    private <T> T fromJson(byte[] payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Message<byte[]> encode(byte[] payload, boolean supersedable) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (supersedable) {
+            // Stamped on each node, so the age seen by the outbound channel is local
+            headers.setHeader(SlowConsumerGuard.SUPERSEDABLE_HEADER, System.nanoTime());
+        }
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    private record SessionMessage(String user, String sessionId, String destination, JsonNode payload) {}
+}
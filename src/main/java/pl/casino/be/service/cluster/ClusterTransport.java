@@ -0,0 +1,43 @@
+package pl.casino.be.service.cluster;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Messaging between the nodes of a cluster. Implementations plug in a shared medium (e.g. a pub/sub broker
+ * with a lease store); {@link LocalClusterTransport} is the in-process stand-in used by a single node and by tests.
+ * Payloads are opaque bytes, so a transport never needs to know the message types.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Acquires or renews the leader lease. Only one node holds it at a time; a lease that is not renewed
+     * before it runs out can be taken over by another node.
+     * @param nodeId Identifier of the calling node.
+     * @param lease How long the lease is valid from now.
+     * @return true if the calling node holds the lease.
+     */
+    boolean tryAcquireLeadership(String nodeId, Duration lease);
+
+    /**
+     * Gives up the lease if the node holds it, so another node can take over without waiting for it to expire.
+     */
+    void releaseLeadership(String nodeId);
+
+    /**
+     * Delivers a message to the subscribers of the channel on every node, including the sender.
+     * Messages from one sender on one channel are delivered in the order they were sent.
+     */
+    void broadcast(String channel, byte[] payload);
+
+    /**
+     * Delivers a message to the subscribers of the channel on the node that currently holds the lease.
+     * Dropped if no node holds it.
+     */
+    void sendToLeader(String channel, byte[] payload);
+
+    /**
+     * Registers a listener for messages on a channel addressed to the given node.
+     */
+    void subscribe(String nodeId, String channel, Consumer<byte[]> listener);
+}
@@ -0,0 +1,86 @@
+package pl.casino.be.service.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link ClusterTransport}. Every node sharing an instance is part of the same cluster, which is how
+ * a standalone node runs (a cluster of one) and how tests run several nodes in one JVM.
+ * Messages are delivered synchronously on the sender's thread.
+ */
+@Slf4j
+public class LocalClusterTransport implements ClusterTransport {
+
+    // channel -> nodeId -> listeners
+    private final Map<String, Map<String, List<Consumer<byte[]>>>> subscriptions = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private String leaseHolder;
+    private long leaseExpiresNanos;
+
+    @Override
+    public synchronized boolean tryAcquireLeadership(String nodeId, Duration lease) {
+        long now = System.nanoTime();
+        if (leaseHolder == null || leaseHolder.equals(nodeId) || now - leaseExpiresNanos >= 0) {
+            leaseHolder = nodeId;
+            leaseExpiresNanos = now + lease.toNanos();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void releaseLeadership(String nodeId) {
+        if (nodeId.equals(leaseHolder)) {
+            leaseHolder = null;
+        }
+    }
+
+    @Override
+    public void broadcast(String channel, byte[] payload) {
+        Map<String, List<Consumer<byte[]>>> nodes = subscriptions.get(channel);
+        if (nodes != null) {
+            nodes.values().forEach(listeners -> deliver(channel, listeners, payload));
+        }
+    }
+
+    @Override
+    public void sendToLeader(String channel, byte[] payload) {
+        String leader = currentLeader();
+        Map<String, List<Consumer<byte[]>>> nodes = subscriptions.get(channel);
+        List<Consumer<byte[]>> listeners = leader != null && nodes != null ? nodes.get(leader) : null;
+        if (listeners == null) {
+            log.warn("No leader is listening on {}, message dropped.", channel);
+            return;
+        }
+        deliver(channel, listeners, payload);
+    }
+
+    @Override
+    public void subscribe(String nodeId, String channel, Consumer<byte[]> listener) {
+        subscriptions.computeIfAbsent(channel, _ -> new ConcurrentHashMap<>())
+                .computeIfAbsent(nodeId, _ -> new CopyOnWriteArrayList<>())
+                .add(listener);
+    }
+
+    private synchronized String currentLeader() {
+        return leaseHolder != null && System.nanoTime() - leaseExpiresNanos < 0 ? leaseHolder : null;
+    }
+
+    private static void deliver(String channel, List<Consumer<byte[]>> listeners, byte[] payload) {
+        for (Consumer<byte[]> listener : listeners) {
+            try {
+                listener.accept(payload);
+            } catch (RuntimeException e) {
+                // One failing node must not keep the message from the others
+                log.error("Cluster listener on {} failed.", channel, e);
+            }
+        }
+    }
+}
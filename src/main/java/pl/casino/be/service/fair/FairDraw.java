@@ -0,0 +1,13 @@
+package pl.casino.be.service.fair;
+
+/**
+ * One outcome taken from a chain.
+ * @param sequence Position of the draw among all draws of the game since this node started.
+ * @param hash Hex chain hash the outcome is derived from; secret until the round is revealed.
+ * @param outcome Drawn outcome, from 0 to {@link FairGame#outcomes()} (exclusive).
+ */
+public record FairDraw(
+        long sequence,
+        String hash,
+        int outcome
+) {}
@@ -0,0 +1,52 @@
+package pl.casino.be.service.fair;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+/**
+ * Games that draw their outcomes from a provably fair chain, each with its own chain.
+ */
+public enum FairGame {
+    // Crash point in hundredths above 1.00x, so 1.00x to 2.99x
+    COSMIC_CASHOUT(200),
+    // Winning pocket of a single-player spin
+    ROULETTE(37),
+    // Winning pocket of a shared table round
+    ROULETTE_TABLE(37);
+
+    private final int outcomes;
+
+    FairGame(int outcomes) {
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * @return Number of possible outcomes; outcomes are drawn from 0 (inclusive) to this value (exclusive).
+     */
+    public int outcomes() {
+        return outcomes;
+    }
+
+    /**
+     * @param outcome Drawn outcome.
+     * @return The outcome the way the game shows it, e.g. "1.49x" or "17".
+     */
+    public String format(int outcome) {
+        return switch (this) {
+            case COSMIC_CASHOUT -> String.format(Locale.ROOT, "%d.%02dx", 1 + outcome / 100, outcome % 100);
+            case ROULETTE, ROULETTE_TABLE -> String.valueOf(outcome);
+        };
+    }
+
+    /**
+     * @param name Game name, case-insensitive, with dashes or underscores (e.g. "cosmic-cashout").
+     * @throws IllegalArgumentException if no such game draws fair outcomes.
+     */
+    public static FairGame fromName(String name) {
+        try {
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(MessageFormat.format("Unknown game: {0}", name));
+        }
+    }
+}
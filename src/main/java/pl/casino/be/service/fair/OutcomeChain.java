@@ -0,0 +1,149 @@
+package pl.casino.be.service.fair;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Provably fair outcomes of one game, drawn from SHA-256 hash chains.
+ * A segment starts from a random seed that is hashed forward {@code segmentSize - 1} times, and the hashes are
+ * then used in reverse order. SHA-256 of a revealed hash is the hash of the round before it, and the last hash
+ * computed is published in advance as the segment's commitment, so no outcome can be changed once committed.
+ * Each outcome is HMAC-SHA256(key = hash, message = salt), reduced to the game's range.
+ * Segments are computed in full up front, so a draw only reads the next slot.
+ */
+final class OutcomeChain {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final SecureRandom SEED_RANDOM = new SecureRandom();
+
+    private final FairGame game;
+    private final byte[] salt;
+    private final int segmentSize;
+
+    // Guarded by this
+    private Segment current;
+    private Segment next;
+    private boolean preparing;
+    private long sequence;
+
+    OutcomeChain(FairGame game, byte[] salt, int segmentSize) {
+        this.game = game;
+        this.salt = salt;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Takes the next outcome. Falls back to computing a segment on the caller's thread only if the
+     * prepared one is not ready in time.
+     */
+    synchronized FairDraw draw() {
+        if (current == null || current.exhausted()) {
+            current = next != null ? next : Segment.compute(game, salt, segmentSize);
+            next = null;
+        }
+        int slot = current.position++;
+        return new FairDraw(++sequence, HEX.formatHex(current.hashes[slot]), current.outcomes[slot]);
+    }
+
+    /**
+     * Claims the preparation of the next segment once the current one is half used.
+     * @return true if the caller should compute the next segment and hand it over with {@link #offerNextSegment}.
+     */
+    synchronized boolean claimNextSegment() {
+        if (preparing || next != null || (current != null && current.position < segmentSize / 2)) {
+            return false;
+        }
+        preparing = true;
+        return true;
+    }
+
+    synchronized void offerNextSegment(Segment segment) {
+        preparing = false;
+        if (segment != null && next == null) {
+            next = segment;
+        }
+    }
+
+    Segment computeSegment() {
+        return Segment.compute(game, salt, segmentSize);
+    }
+
+    /**
+     * @return Commitment of the segment draws are currently taken from, or of the prepared one before the first draw.
+     */
+    synchronized String commitment() {
+        Segment segment = current != null ? current : next;
+        return segment != null ? segment.commitment : null;
+    }
+
+    /**
+     * @return Commitment of the segment that follows the current one, if it has been prepared.
+     */
+    synchronized String nextCommitment() {
+        return current != null && next != null ? next.commitment : null;
+    }
+
+    /**
+     * Derives the outcome of a revealed hash, the way a player can check it independently.
+     * @param hash Revealed chain hash.
+     * @return Outcome the hash produces for this game.
+     */
+    static int outcome(FairGame game, byte[] salt, byte[] hash) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(hash, "HmacSHA256"));
+            long value = ByteBuffer.wrap(mac.doFinal(salt)).getLong();
+            // The modulo bias over 64 bits is below 2^-56 for any of the game ranges
+            return (int) Long.remainderUnsigned(value, game.outcomes());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static final class Segment {
+        // In the order they are used; hashes[i + 1] hashes to hashes[i]
+        private final byte[][] hashes;
+        private final int[] outcomes;
+        private final String commitment;
+        private int position;
+
+        private Segment(byte[][] hashes, int[] outcomes, String commitment) {
+            this.hashes = hashes;
+            this.outcomes = outcomes;
+            this.commitment = commitment;
+        }
+
+        private static Segment compute(FairGame game, byte[] salt, int size) {
+            byte[][] hashes = new byte[size][];
+            byte[] hash = new byte[32];
+            SEED_RANDOM.nextBytes(hash);
+            for (int i = size - 1; i >= 0; i--) {
+                hashes[i] = hash;
+                hash = sha256(hash);
+            }
+            int[] outcomes = new int[size];
+            for (int i = 0; i < size; i++) {
+                outcomes[i] = outcome(game, salt, hashes[i]);
+            }
+            // The hash of the first one used: every revealed hash chains back to it
+            return new Segment(hashes, outcomes, HEX.formatHex(hash));
+        }
+
+        private boolean exhausted() {
+            return position >= hashes.length;
+        }
+    }
+}
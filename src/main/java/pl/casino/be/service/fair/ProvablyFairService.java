@@ -0,0 +1,154 @@
+package pl.casino.be.service.fair;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.casino.be.dto.FairChainStateDto;
+import pl.casino.be.dto.FairDrawDto;
+import pl.casino.be.dto.FairVerificationDto;
+
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provably fair outcomes for the games. Each game draws from its own {@link OutcomeChain}; the next chain
+ * segment is computed on a background thread while the current one is in use, so a draw is an O(1) read of
+ * a precomputed slot and never waits for entropy. Hashes are revealed once the round they decided is over;
+ * a round that is called off still publishes its hash, marked void, so every link of the chain can be audited.
+ */
+@Slf4j
+@Service
+public class ProvablyFairService {
+
+    private static final int REVEALED_KEPT = 100;
+
+    private final String salt;
+    private final byte[] saltBytes;
+    private final Map<FairGame, OutcomeChain> chains = new EnumMap<>(FairGame.class);
+    private final Map<FairGame, Deque<Revealed>> revealed = new EnumMap<>(FairGame.class);
+    private final ExecutorService preparer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("fair-chain-preparer").daemon().factory());
+
+    public ProvablyFairService(@Value("${casino.fair.salt:project-casino-be}") String salt,
+                               @Value("${casino.fair.segment-size:10000}") int segmentSize) {
+        this.salt = salt;
+        this.saltBytes = salt.getBytes(StandardCharsets.UTF_8);
+        for (FairGame game : FairGame.values()) {
+            chains.put(game, new OutcomeChain(game, saltBytes, segmentSize));
+            revealed.put(game, new ArrayDeque<>());
+        }
+    }
+
+    // A published draw; a void one was taken for a round that was called off and decided nothing
+    private record Revealed(FairDraw draw, boolean voided) {}
+
+    @PostConstruct
+    public void prepare() {
+        chains.values().forEach(this::prepareNextSegment);
+    }
+
+    /**
+     * Takes the next outcome of a game. Keep the draw secret until the round is over, then {@link #reveal} it,
+     * or {@link #voidDraw} it if the round is called off.
+     * @param game Game the outcome is for.
+     * @return The draw, with the outcome in the range of the game.
+     */
+    public FairDraw draw(FairGame game) {
+        OutcomeChain chain = chains.get(game);
+        FairDraw draw = chain.draw();
+        prepareNextSegment(chain);
+        return draw;
+    }
+
+    /**
+     * Publishes the hash of a finished round, so players can verify its outcome.
+     */
+    public void reveal(FairGame game, FairDraw draw) {
+        publish(game, new Revealed(draw, false));
+    }
+
+    /**
+     * Publishes the hash of a round that was called off before its outcome took effect, e.g. because
+     * settlement failed, so the chain has no unexplained gap.
+     */
+    public void voidDraw(FairGame game, FairDraw draw) {
+        log.warn("Voided {} draw {}.", game, draw.sequence());
+        publish(game, new Revealed(draw, true));
+    }
+
+    private void publish(FairGame game, Revealed draw) {
+        Deque<Revealed> draws = revealed.get(game);
+        synchronized (draws) {
+            draws.addFirst(draw);
+            if (draws.size() > REVEALED_KEPT) {
+                draws.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @param game Game to describe.
+     * @return Salt, current and upcoming commitments and the latest revealed draws of the game, newest first.
+     */
+    public FairChainStateDto getChainState(FairGame game) {
+        OutcomeChain chain = chains.get(game);
+        List<FairDrawDto> draws;
+        Deque<Revealed> gameDraws = revealed.get(game);
+        synchronized (gameDraws) {
+            draws = gameDraws.stream()
+                    .map(published -> new FairDrawDto(published.draw().sequence(), published.draw().hash(),
+                            game.format(published.draw().outcome()), published.voided()))
+                    .toList();
+        }
+        return new FairChainStateDto(game.name(), salt, chain.commitment(), chain.nextCommitment(), draws);
+    }
+
+    /**
+     * Recomputes the outcome of a revealed hash. The returned previous hash must equal the hash revealed for
+     * the round before, or the segment commitment for the first round of a segment.
+     * @param game Game the hash was drawn for.
+     * @param hash Revealed hex hash.
+     * @return The outcome the hash produces and the hash it chains to.
+     * @throws IllegalArgumentException if the hash is not a 32-byte hex string.
+     */
+    public FairVerificationDto verify(FairGame game, String hash) {
+        byte[] bytes;
+        try {
+            bytes = HexFormat.of().parseHex(hash.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(MessageFormat.format("Not a hex hash: {0}", hash));
+        }
+        if (bytes.length != 32) {
+            throw new IllegalArgumentException("Hash must be 32 bytes (64 hex characters).");
+        }
+        int outcome = OutcomeChain.outcome(game, saltBytes, bytes);
+        return new FairVerificationDto(game.name(), HexFormat.of().formatHex(bytes),
+                HexFormat.of().formatHex(OutcomeChain.sha256(bytes)), outcome, game.format(outcome));
+    }
+
+    private void prepareNextSegment(OutcomeChain chain) {
+        if (!chain.claimNextSegment()) {
+            return;
+        }
+        preparer.execute(() -> {
+            OutcomeChain.Segment segment = null;
+            try {
+                segment = chain.computeSegment();
+            } catch (RuntimeException e) {
+                log.error("Failed to prepare an outcome chain segment, draws will compute it inline.", e);
+            } finally {
+                chain.offerNextSegment(segment);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        preparer.shutdownNow();
+    }
+}
@@ -0,0 +1,176 @@
+package pl.casino.be.service.history;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.service.CasinoStatisticsService;
+import pl.casino.be.service.DashboardService;
+import pl.casino.be.storage.GameHistoryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared write stage for game history records.
+ * Records are queued in a bounded buffer and a single flusher thread writes them
+ * to storage in batches, cut by size or by the maximum delay, whichever comes first.
+ */
+@Slf4j
+@Component
+public class GameHistoryWriter {
+
+    // Firestore rejects batches with more than 500 writes.
+    private static final int MAX_FIRESTORE_BATCH = 500;
+
+    private final GameHistoryRepository gameHistoryRepository;
+    private final CasinoStatisticsService statisticsService;
+    private final DashboardService dashboardService;
+    private final CasinoMetrics metrics;
+    private final BlockingQueue<GameHistory> queue;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public GameHistoryWriter(GameHistoryRepository gameHistoryRepository, CasinoStatisticsService statisticsService,
+                             DashboardService dashboardService, CasinoMetrics metrics,
+                             @Value("${casino.history.queue-capacity:10000}") int queueCapacity,
+                             @Value("${casino.history.batch-size:500}") int batchSize,
+                             @Value("${casino.history.max-delay-ms:250}") long maxDelayMillis,
+                             @Value("${casino.history.max-attempts:3}") int maxAttempts) {
+        this.gameHistoryRepository = gameHistoryRepository;
+        this.statisticsService = statisticsService;
+        this.dashboardService = dashboardService;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.min(batchSize, MAX_FIRESTORE_BATCH);
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Thread.ofPlatform().name("game-history-writer").daemon().start(this::run);
+    }
+
+    /**
+     * Queues a record for persistence. Never blocks the game thread; when the buffer is full the record is dropped.
+     * @param history Record to persist.
+     * @return true if the record was accepted.
+     */
+    public boolean submit(GameHistory history) {
+        statisticsService.recordGame(history);
+        dashboardService.recordGame(history);
+        return enqueue(history);
+    }
+
+    /**
+     * Queues several records at once, e.g. all losers of a round. The dashboard is updated once for the whole batch.
+     * @param histories Records to persist.
+     */
+    public void submitAll(Collection<GameHistory> histories) {
+        if (histories.isEmpty()) {
+            return;
+        }
+        histories.forEach(statisticsService::recordGame);
+        dashboardService.recordGames(histories);
+        histories.forEach(this::enqueue);
+    }
+
+    private boolean enqueue(GameHistory history) {
+        if (queue.offer(history)) {
+            return true;
+        }
+        long dropped = droppedRecords.incrementAndGet();
+        log.warn("Game history queue is full, dropped record for user {} ({} dropped in total).", history.getUserId(), dropped);
+        return false;
+    }
+
+    /**
+     * @return Number of records that were dropped because the buffer was full or all write attempts failed.
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    private void run() {
+        List<GameHistory> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                GameHistory first = queue.poll(maxDelayMillis, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) break;
+                    GameHistory next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested; fall through and write what we have.
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<GameHistory> records) {
+        // IDs are fixed before the first attempt so a retried batch cannot create duplicates.
+        for (GameHistory record : records) {
+            if (record.getId() == null) {
+                record.setId(UUID.randomUUID().toString());
+            }
+        }
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                gameHistoryRepository.saveAll(records);
+                metrics.historyWrite(System.nanoTime() - start);
+                log.debug("Persisted {} game history records.", records.size());
+                return;
+            } catch (StorageException e) {
+                metrics.historyWriteFailed();
+                log.warn("Game history batch of {} records failed (attempt {}/{}): {}", records.size(), attempt, maxAttempts, e.getMessage());
+            }
+            try {
+                Thread.sleep(100L * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long dropped = droppedRecords.addAndGet(records.size());
+        log.error("Dropped {} game history records after {} attempts ({} dropped in total).", records.size(), maxAttempts, dropped);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("Flushing {} queued game history records.", queue.size());
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
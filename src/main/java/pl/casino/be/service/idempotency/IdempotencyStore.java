@@ -0,0 +1,109 @@
+package pl.casino.be.service.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.IdempotencyKeyException;
+import pl.casino.be.metrics.CasinoMetrics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-expiring record of requests that carried a client-chosen idempotency key, so a client
+ * retrying after a timeout gets the original result instead of moving money twice.
+ * A retry arriving while the original is still running waits for it. A request that failed is forgotten, so it can be retried.
+ * Entries live in this node only; they are kept for the TTL or until the store is full, whichever comes first.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final CasinoMetrics metrics;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    public IdempotencyStore(CasinoMetrics metrics,
+                            @Value("${casino.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${casino.idempotency.ttl-ms:600000}") long ttlMillis) {
+        this.metrics = metrics;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    private record Entry(Object request, CompletableFuture<Object> result, long expiresAt) {}
+
+    /**
+     * Runs the action once per user, operation and key; repeated calls return the first result.
+     * @param uid User sending the request.
+     * @param operation Endpoint or message destination, so one key can be used for different operations.
+     * @param key Idempotency key chosen by the client; without one the action always runs.
+     * @param request Request payload, compared with equals() against the original one.
+     * @param action Action to run for the first request.
+     * @return Result of the action.
+     * @throws IdempotencyKeyException If the key is too long or was already used for a different request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String uid, String operation, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("Idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters.");
+        }
+        String id = uid + '\n' + operation + '\n' + key;
+        long now = System.nanoTime();
+        Entry entry = new Entry(request, new CompletableFuture<>(), now + ttlNanos);
+        Entry existing = entries.putIfAbsent(id, entry);
+        if (existing != null && existing.expiresAt - now <= 0) {
+            // Expired but not evicted yet
+            existing = entries.replace(id, existing, entry) ? null : entries.putIfAbsent(id, entry);
+        }
+        if (existing != null) {
+            if (!Objects.equals(existing.request, request)) {
+                throw new IdempotencyKeyException("Idempotency key was already used for a different request.");
+            }
+            metrics.idempotentReplay();
+            try {
+                return (T) existing.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        if (entries.size() > maxEntries) {
+            evict(now);
+        }
+        try {
+            T result = action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops expired entries; if the store is still full, drops arbitrary completed entries until there is room again.
+     */
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+        Iterator<Entry> values = entries.values().iterator();
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        while (excess > 0 && values.hasNext()) {
+            if (values.next().result.isDone()) {
+                values.remove();
+                excess--;
+            }
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package pl.casino.be.service.ledger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.InsufficientFundsException;
+import pl.casino.be.exception.LedgerSyncException;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.TransactionType;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.TransactionRepository;
+import pl.casino.be.storage.UserRepository;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Authoritative in-process ledger of user balances (write-behind).
+ * Moves are checked and applied in memory, written to the local {@link LedgerJournal}
+ * and acknowledged once the journal is synced. A background flusher then writes transaction
+ * records and settled games to storage in ordered batches, which add the moves to the stored balances.
+ * If the journal sync fails, the caller gets a {@link LedgerSyncException} although the move is already applied
+ * in memory and will still be flushed, the same unknown outcome as a timed-out request. Any other exception
+ * means the move was not applied.
+ */
+@Slf4j
+@Component
+public class BalanceLedger {
+
+    // A Firestore transaction holds at most 500 writes: one per entry and game plus one balance update per user.
+    private static final int MAX_WRITES_PER_BATCH = 500;
+    // A settled player needs at most five writes: two moves, their balance and the game.
+    private static final int SETTLEMENTS_PER_RECORD = MAX_WRITES_PER_BATCH / 5;
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerJournal journal;
+    private final CasinoMetrics metrics;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    // Writers take journalLock before the account lock, so each account's moves are journaled in the order they are applied.
+    // Accounts are loaded before it is taken and the journal is synced after it is released.
+    private final Object journalLock = new Object();
+    private long sequence;
+    private final int maxFlushAttempts;
+    // Guarded by flush(): failed attempts in a row, and the journal offset before which every record is flushed
+    private int failedFlushes;
+    private long flushedThrough;
+
+    public BalanceLedger(UserRepository userRepository, TransactionRepository transactionRepository, LedgerJournal journal,
+                         CasinoMetrics metrics,
+                         @Value("${casino.ledger.max-flush-attempts:5}") int maxFlushAttempts) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.maxFlushAttempts = maxFlushAttempts;
+    }
+
+    // A journaled record waiting to be flushed, with the journal offset just past its line
+    private record Pending(JournalRecord record, long journalEnd) {}
+
+    /**
+     * Replays moves that were acknowledged but not flushed before the last shutdown or crash.
+     */
+    @PostConstruct
+    public void recover() {
+        List<LedgerJournal.Recovered> records = journal.readAll();
+        for (LedgerJournal.Recovered recovered : records) {
+            for (LedgerEntry entry : recovered.record().entries()) {
+                accounts.computeIfAbsent(entry.uid(), _ -> new Account()).balance = entry.balanceAfter();
+                sequence = Math.max(sequence, entry.sequence());
+            }
+            pending.add(new Pending(recovered.record(), recovered.end()));
+        }
+        if (!records.isEmpty()) {
+            log.warn("Recovered {} unflushed ledger records from the journal.", records.size());
+        }
+    }
+
+    /**
+     * Applies a move to the user's balance and journals it.
+     * @param uid Identifier of the user.
+     * @param amount Amount to add (positive) or subtract (negative).
+     * @param type Transaction type.
+     * @return The acknowledged move.
+     * @throws InsufficientFundsException if the move would make the available balance negative.
+     */
+    public LedgerEntry apply(String uid, BigDecimal amount, TransactionType type) {
+        Account account = account(uid);
+        LedgerEntry entry;
+        long journalEnd;
+        synchronized (journalLock) {
+            synchronized (account) {
+                BigDecimal newBalance = account.balance.add(amount);
+                if (newBalance.subtract(account.reserved).compareTo(BigDecimal.ZERO) < 0) {
+                    throw insufficientFunds(uid);
+                }
+                entry = new LedgerEntry(++sequence, UUID.randomUUID().toString(), uid, type, amount, newBalance, System.currentTimeMillis());
+                journalEnd = enqueue(List.of(JournalRecord.of(entry)));
+                account.balance = newBalance;
+            }
+        }
+        sync(journalEnd);
+        return entry;
+    }
+
+    /**
+     * Credits several users with a single journal write, e.g. every auto cash-out reached in one tick.
+     * @param amounts Amount to add per user (positive).
+     * @param type Transaction type.
+     */
+    public void creditAll(Map<String, BigDecimal> amounts, TransactionType type) {
+        Map<String, Account> loaded = accounts(amounts.keySet());
+        long journalEnd;
+        synchronized (journalLock) {
+            // Balances are updated only once the journal write has succeeded
+            Map<Account, BigDecimal> newBalances = new LinkedHashMap<>();
+            List<JournalRecord> records = new ArrayList<>(amounts.size());
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, BigDecimal> credit : amounts.entrySet()) {
+                Account account = loaded.get(credit.getKey());
+                BigDecimal newBalance;
+                synchronized (account) {
+                    newBalance = account.balance.add(credit.getValue());
+                }
+                records.add(JournalRecord.of(new LedgerEntry(++sequence, UUID.randomUUID().toString(), credit.getKey(), type,
+                        credit.getValue(), newBalance, now)));
+                newBalances.put(account, newBalance);
+            }
+            journalEnd = enqueue(records);
+            newBalances.forEach((account, balance) -> {
+                synchronized (account) {
+                    account.balance = balance;
+                }
+            });
+        }
+        sync(journalEnd);
+    }
+
+    /**
+     * Settles a finished game as one unit: debits the stake, credits the payout and records the game.
+     * Both moves and the game share one journal line and are written to storage in the same batch.
+     * @param uid Identifier of the user.
+     * @param stake Amount wagered (positive).
+     * @param payout Amount won, zero for a loss.
+     * @param game Game record; its ID is assigned here if missing.
+     * @throws InsufficientFundsException if the available balance does not cover the stake.
+     */
+    public void settle(String uid, BigDecimal stake, BigDecimal payout, GameHistory game) {
+        Account account = account(uid);
+        long journalEnd;
+        synchronized (journalLock) {
+            synchronized (account) {
+                if (account.balance.subtract(account.reserved).compareTo(stake) < 0) {
+                    throw insufficientFunds(uid);
+                }
+                List<LedgerEntry> entries = new ArrayList<>(2);
+                BigDecimal newBalance = settlementEntries(account.balance, uid, stake, payout, entries);
+                journalEnd = enqueue(List.of(new JournalRecord(entries, List.of(withId(game)))));
+                account.balance = newBalance;
+            }
+        }
+        sync(journalEnd);
+    }
+
+    /**
+     * Sets funds aside for a bet in a shared round, so they cannot be spent until the round is settled.
+     * Reservations are not journaled: after a crash they are gone and the round never happened.
+     * @param uid Identifier of the user.
+     * @param amount Amount to reserve (positive).
+     * @throws InsufficientFundsException if the available balance does not cover the amount.
+     */
+    public void reserve(String uid, BigDecimal amount) {
+        Account account = account(uid);
+        synchronized (account) {
+            BigDecimal reserved = account.reserved.add(amount);
+            if (account.balance.compareTo(reserved) < 0) {
+                throw insufficientFunds(uid);
+            }
+            account.reserved = reserved;
+        }
+    }
+
+    /**
+     * Returns reserved funds to the available balance, e.g. when a round is cancelled.
+     */
+    public void release(String uid, BigDecimal amount) {
+        Account account = account(uid);
+        synchronized (account) {
+            if (account.reserved.compareTo(amount) < 0) {
+                log.error("Releasing {} for user {} who has only {} reserved.", amount, uid, account.reserved);
+            }
+            account.reserved = account.reserved.subtract(amount).max(BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Settles every player of a shared round against their reserved stakes with a single journal write.
+     * Players are grouped into records that fit one storage batch; each player's moves and game
+     * always share a record.
+     * @param settlements Outcome per player; stakes must have been reserved with {@link #reserve}.
+     * @throws LedgerSyncException if the round was settled but the journal could not be synced; the
+     * reservations are already used up and must not be released.
+     */
+    public void settleReserved(List<Settlement> settlements) {
+        Map<String, Account> loaded = accounts(settlements.stream().map(Settlement::uid).toList());
+        long journalEnd;
+        synchronized (journalLock) {
+            // Balances are updated only once the journal write has succeeded
+            Map<Account, BigDecimal> newBalances = new LinkedHashMap<>();
+            Map<Account, BigDecimal> settledStakes = new HashMap<>();
+            List<JournalRecord> records = new ArrayList<>();
+            List<LedgerEntry> entries = new ArrayList<>();
+            List<GameHistory> games = new ArrayList<>();
+            for (Settlement settlement : settlements) {
+                Account account = loaded.get(settlement.uid());
+                BigDecimal balance;
+                synchronized (account) {
+                    balance = newBalances.getOrDefault(account, account.balance);
+                }
+                newBalances.put(account, settlementEntries(balance, settlement.uid(), settlement.stake(), settlement.payout(), entries));
+                settledStakes.merge(account, settlement.stake(), BigDecimal::add);
+                games.add(withId(settlement.game()));
+                if (games.size() == SETTLEMENTS_PER_RECORD) {
+                    records.add(new JournalRecord(entries, games));
+                    entries = new ArrayList<>();
+                    games = new ArrayList<>();
+                }
+            }
+            if (!games.isEmpty()) {
+                records.add(new JournalRecord(entries, games));
+            }
+            journalEnd = enqueue(records);
+
+            newBalances.forEach((account, balance) -> {
+                synchronized (account) {
+                    account.balance = balance;
+                    account.reserved = account.reserved.subtract(settledStakes.get(account)).max(BigDecimal.ZERO);
+                }
+            });
+        }
+        sync(journalEnd);
+    }
+
+    /**
+     * Returns the balance held by the ledger, if the user's account has been loaded on this node.
+     * Funds reserved for bets in open rounds are not included.
+     * @param uid Identifier of the user.
+     * @return Available balance, or empty if the ledger has not seen the user yet.
+     */
+    public Optional<BigDecimal> balanceOf(String uid) {
+        Account account = accounts.get(uid);
+        if (account == null) {
+            return Optional.empty();
+        }
+        synchronized (account) {
+            return Optional.of(account.balance.subtract(account.reserved));
+        }
+    }
+
+    /**
+     * Writes pending moves to storage in sequence order, then discards the flushed records from the journal.
+     * A record is never split between batches; a failed batch stays queued and is retried on the next run.
+     * After repeated failures a record that storage keeps refusing is quarantined, so it does not block the rest.
+     */
+    @Scheduled(fixedDelayString = "${casino.ledger.flush-interval-ms:200}")
+    public synchronized void flush() {
+        long flushedBefore = flushedThrough;
+        flushPending();
+        if (flushedThrough > flushedBefore) {
+            journal.compact(flushedThrough);
+        }
+    }
+
+    private void flushPending() {
+        while (!pending.isEmpty()) {
+            if (failedFlushes >= maxFlushAttempts) {
+                if (!flushAroundHead()) {
+                    return;
+                }
+                continue;
+            }
+            List<Pending> batch = nextBatch(pending.iterator());
+            if (!save(batch)) {
+                failedFlushes++;
+                return;
+            }
+            failedFlushes = 0;
+            dequeue(batch.size());
+        }
+    }
+
+    /**
+     * Tells a storage outage from a record that storage refuses: the oldest record is written alone, then the
+     * records after it. If only the oldest one fails, it is set aside in the journal's quarantine file.
+     * @return Whether the oldest record left the queue.
+     */
+    private boolean flushAroundHead() {
+        Iterator<Pending> records = pending.iterator();
+        Pending head = records.next();
+        if (save(List.of(head))) {
+            failedFlushes = 0;
+            dequeue(1);
+            return true;
+        }
+        if (!records.hasNext()) {
+            return false;
+        }
+        List<Pending> rest = nextBatch(records);
+        if (!save(rest)) {
+            return false;
+        }
+        try {
+            journal.quarantine(head.record());
+        } catch (UncheckedIOException e) {
+            log.error("Failed to quarantine a ledger record storage keeps refusing: {}", e.getMessage());
+            return false;
+        }
+        metrics.ledgerRecordQuarantined();
+        log.error("Quarantined a ledger record storage keeps refusing; its moves {} need to be repaired by hand.",
+                head.record().entries().stream().map(LedgerEntry::transactionId).toList());
+        failedFlushes = 0;
+        dequeue(1 + rest.size());
+        return true;
+    }
+
+    // Takes records from the iterator while they fit one storage batch; always takes at least one.
+    private static List<Pending> nextBatch(Iterator<Pending> records) {
+        List<Pending> batch = new ArrayList<>();
+        int writes = 0;
+        while (records.hasNext()) {
+            Pending next = records.next();
+            if (!batch.isEmpty() && writes + next.record().maxWrites() > MAX_WRITES_PER_BATCH) {
+                break;
+            }
+            batch.add(next);
+            writes += next.record().maxWrites();
+        }
+        return batch;
+    }
+
+    private boolean save(List<Pending> batch) {
+        List<Transaction> transactions = new ArrayList<>();
+        List<GameHistory> games = new ArrayList<>();
+        for (Pending queued : batch) {
+            for (LedgerEntry entry : queued.record().entries()) {
+                transactions.add(entry.toTransaction());
+            }
+            games.addAll(queued.record().games());
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionRepository.saveAndApply(transactions, games);
+            metrics.ledgerFlush(System.nanoTime() - start);
+        } catch (StorageException e) {
+            metrics.ledgerFlushFailed();
+            log.error("Ledger flush of {} moves failed, will retry: {}", transactions.size(), e.getMessage());
+            return false;
+        }
+        log.debug("Flushed {} ledger moves and {} games.", transactions.size(), games.size());
+        return true;
+    }
+
+    private void dequeue(int records) {
+        for (int i = 0; i < records; i++) {
+            flushedThrough = pending.poll().journalEnd();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Flushing {} pending ledger records before shutdown.", pending.size());
+        flush();
+    }
+
+    // Buffers records in the journal and queues them for the flusher; the caller holds journalLock.
+    // Returns the journal offset to sync up to.
+    private long enqueue(List<JournalRecord> records) {
+        long[] ends = journal.write(records);
+        for (int i = 0; i < ends.length; i++) {
+            pending.add(new Pending(records.get(i), ends[i]));
+        }
+        return ends.length > 0 ? ends[ends.length - 1] : 0;
+    }
+
+    private void sync(long journalEnd) {
+        try {
+            journal.sync(journalEnd);
+        } catch (UncheckedIOException e) {
+            throw new LedgerSyncException("Ledger move applied but not synced to the journal.", e);
+        }
+    }
+
+    // Appends the BET move and, for a win, the WIN move; returns the balance after both.
+    private BigDecimal settlementEntries(BigDecimal balance, String uid, BigDecimal stake, BigDecimal payout, List<LedgerEntry> entries) {
+        long now = System.currentTimeMillis();
+        BigDecimal afterStake = balance.subtract(stake);
+        entries.add(new LedgerEntry(++sequence, UUID.randomUUID().toString(), uid, TransactionType.BET, stake.negate(), afterStake, now));
+        if (payout.signum() <= 0) {
+            return afterStake;
+        }
+        BigDecimal afterPayout = afterStake.add(payout);
+        entries.add(new LedgerEntry(++sequence, UUID.randomUUID().toString(), uid, TransactionType.WIN, payout, afterPayout, now));
+        return afterPayout;
+    }
+
+    private static GameHistory withId(GameHistory game) {
+        if (game.getId() == null) {
+            game.setId(UUID.randomUUID().toString());
+        }
+        return game;
+    }
+
+    private static InsufficientFundsException insufficientFunds(String uid) {
+        return new InsufficientFundsException(MessageFormat.format("Insufficient funds for user: {0}", uid));
+    }
+
+    private Map<String, Account> accounts(Collection<String> uids) {
+        Map<String, Account> loaded = new HashMap<>();
+        for (String uid : uids) {
+            loaded.computeIfAbsent(uid, this::account);
+        }
+        return loaded;
+    }
+
+    private Account account(String uid) {
+        Account account = accounts.get(uid);
+        if (account != null) {
+            return account;
+        }
+        // Loaded outside the map so a slow read does not block other users.
+        BigDecimal balance = loadBalance(uid);
+        Account loaded = new Account();
+        loaded.balance = balance;
+        Account existing = accounts.putIfAbsent(uid, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private BigDecimal loadBalance(String uid) {
+        User user = userRepository.findById(uid)
+                .orElseThrow(() -> new IllegalStateException(MessageFormat.format("User not found: {0}", uid)));
+        return user.getBalance() != null ? user.getBalance() : BigDecimal.ZERO;
+    }
+
+    private static final class Account {
+        private BigDecimal balance = BigDecimal.ZERO;
+        private BigDecimal reserved = BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,24 @@
+package pl.casino.be.service.ledger;
+
+import pl.casino.be.model.GameHistory;
+
+import java.util.List;
+
+/**
+ * Moves that were acknowledged together, written to the journal as one line and to storage in one batch.
+ * @param entries Balance moves, in the order they were applied.
+ * @param games Finished games settled by these moves, empty for plain wallet operations.
+ */
+public record JournalRecord(List<LedgerEntry> entries, List<GameHistory> games) {
+
+    public static JournalRecord of(LedgerEntry entry) {
+        return new JournalRecord(List.of(entry), List.of());
+    }
+
+    /**
+     * @return Upper bound of storage writes needed for this record (transaction and balance per move, plus the games).
+     */
+    int maxWrites() {
+        return 2 * entries.size() + games.size();
+    }
+}
@@ -0,0 +1,38 @@
+package pl.casino.be.service.ledger;
+
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * A single acknowledged balance move, as written to the local journal.
+ * @param sequence Monotonic position of the move in the ledger.
+ * @param transactionId Document ID the move is stored under in the transactions collection.
+ * @param uid Identifier of the user.
+ * @param type Transaction type.
+ * @param amount Signed amount applied to the balance.
+ * @param balanceAfter Balance of the user right after this move.
+ * @param timestamp Epoch millis of the move.
+ */
+public record LedgerEntry(
+        long sequence,
+        String transactionId,
+        String uid,
+        TransactionType type,
+        BigDecimal amount,
+        BigDecimal balanceAfter,
+        long timestamp
+) {
+
+    public Transaction toTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(transactionId);
+        transaction.setUserId(uid);
+        transaction.setType(type);
+        transaction.setAmount(amount.abs());
+        transaction.setTimestamp(new Date(timestamp));
+        return transaction;
+    }
+}
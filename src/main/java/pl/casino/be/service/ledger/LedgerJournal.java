@@ -0,0 +1,302 @@
+package pl.casino.be.service.ledger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only local journal of ledger moves (one JSON document per line).
+ * Every move is written here before it is acknowledged to the caller, so moves
+ * that were not yet flushed to storage can be replayed after a crash.
+ * Moves that belong together (e.g. the stake and payout of one game) share a line, so they are recovered all or nothing.
+ * <p>
+ * Writes are group-committed: {@link #write} only buffers the lines, and {@link #sync} writes and forces
+ * everything buffered so far, so concurrent writers share one fsync. Positions are journal offsets, which
+ * keep growing when the flushed head of the file is discarded by {@link #compact}.
+ * After a failed write or sync the journal refuses further writes, since it can no longer tell what is durable.
+ */
+@Slf4j
+@Component
+public class LedgerJournal {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final Path quarantinePath;
+    private final boolean fsync;
+    private final long compactBytes;
+
+    // Held while the file is written, forced or replaced; taken before the journal's monitor
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    // Journal offset of the first byte in the file
+    private long base;
+    private volatile long durable;
+
+    // Guarded by this: lines written but not synced yet, and the journal offset just past them
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private long end;
+    private IOException failure;
+
+    public LedgerJournal(ObjectMapper objectMapper,
+                         @Value("${casino.ledger.journal-path}") String path,
+                         @Value("${casino.ledger.journal-fsync:true}") boolean fsync,
+                         @Value("${casino.ledger.journal-compact-bytes:16777216}") long compactBytes) {
+        this.objectMapper = objectMapper;
+        this.path = Path.of(path);
+        this.quarantinePath = Path.of(path + ".quarantine");
+        this.fsync = fsync;
+        this.compactBytes = compactBytes;
+    }
+
+    /**
+     * A record read back from the journal.
+     * @param record The journaled record.
+     * @param end Journal offset just past the record's line.
+     */
+    public record Recovered(JournalRecord record, long end) {}
+
+    /**
+     * Reads all records currently stored in the journal, in write order, and prepares the journal for appends.
+     * A torn last line (crash in the middle of a write) was never acknowledged, so it is cut off the file;
+     * otherwise the next append would continue it.
+     * @return List of journaled records.
+     */
+    public List<Recovered> readAll() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                List<Recovered> records = new ArrayList<>();
+                if (!Files.exists(path)) {
+                    return records;
+                }
+                long complete = 0;
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                    ByteArrayOutputStream line = new ByteArrayOutputStream();
+                    long offset = 0;
+                    int next;
+                    while ((next = in.read()) >= 0) {
+                        offset++;
+                        if (next != '\n') {
+                            line.write(next);
+                            continue;
+                        }
+                        JournalRecord record = parse(line.toString(StandardCharsets.UTF_8));
+                        if (record != null) {
+                            records.add(new Recovered(record, offset));
+                        }
+                        line.reset();
+                        complete = offset;
+                    }
+                    if (offset > complete) {
+                        log.warn("Cutting a torn line of {} bytes off the end of ledger journal {}.", offset - complete, path);
+                        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                            file.truncate(complete);
+                            file.force(true);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read ledger journal " + path, e);
+                }
+                base = 0;
+                end = complete;
+                durable = complete;
+                return records;
+            }
+        }
+    }
+
+    private JournalRecord parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            // Lines written before records were introduced hold a single move
+            return node.has("entries")
+                    ? objectMapper.treeToValue(node, JournalRecord.class)
+                    : JournalRecord.of(objectMapper.treeToValue(node, LedgerEntry.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping unreadable ledger journal line: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Buffers records for the next {@link #sync}. Each record is one line, so a crash in the middle
+     * of the write loses whole records only. Callers that need the records in a particular order
+     * must not write concurrently.
+     * @param records Records to append.
+     * @return Journal offset just past each record.
+     */
+    public long[] write(List<JournalRecord> records) {
+        List<byte[]> lines = new ArrayList<>(records.size());
+        try {
+            for (JournalRecord record : records) {
+                byte[] json = objectMapper.writeValueAsBytes(record);
+                byte[] line = new byte[json.length + 1];
+                System.arraycopy(json, 0, line, 0, json.length);
+                line[json.length] = '\n';
+                lines.add(line);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize ledger journal record.", e);
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw new UncheckedIOException("Ledger journal " + path + " failed earlier and accepts no writes.", failure);
+            }
+            long[] ends = new long[lines.size()];
+            for (int i = 0; i < ends.length; i++) {
+                buffer.writeBytes(lines.get(i));
+                end += lines.get(i).length;
+                ends[i] = end;
+            }
+            return ends;
+        }
+    }
+
+    /**
+     * Makes the journal durable up to the given offset. If another thread is syncing, waits for it
+     * and then writes everything buffered in the meantime with a single sync.
+     * @param offset Journal offset returned by {@link #write}.
+     */
+    public void sync(long offset) {
+        if (durable >= offset) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable >= offset) {
+                return;
+            }
+            byte[] bytes;
+            long upTo;
+            synchronized (this) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Ledger journal " + path + " failed earlier and accepts no writes.", failure);
+                }
+                bytes = buffer.toByteArray();
+                buffer.reset();
+                upTo = end;
+            }
+            try {
+                FileChannel out = channel();
+                ByteBuffer data = ByteBuffer.wrap(bytes);
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+                if (fsync) {
+                    out.force(false);
+                }
+                durable = upTo;
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw new UncheckedIOException("Failed to append to ledger journal " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Discards the records before the given offset once they have been flushed to storage.
+     * A fully flushed journal is truncated; otherwise the unflushed tail is copied to a new file,
+     * but only once the discarded head has grown past the compaction threshold.
+     * @param upTo Journal offset before which every record is flushed.
+     */
+    public void compact(long upTo) {
+        synchronized (syncLock) {
+            long target = Math.min(upTo, durable);
+            if (target <= base) {
+                return;
+            }
+            try {
+                if (target == durable) {
+                    channel().truncate(0);
+                    if (fsync) {
+                        channel().force(true);
+                    }
+                } else if (target - base >= compactBytes) {
+                    rewriteFrom(target - base);
+                } else {
+                    return;
+                }
+                base = target;
+            } catch (IOException e) {
+                // The old file is still complete, so nothing is lost; compaction is retried after the next flush
+                log.error("Failed to compact ledger journal {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private void rewriteFrom(long position) throws IOException {
+        Path tail = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tail, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long copied = 0;
+            while (position + copied < size) {
+                copied += in.transferTo(position + copied, size - position - copied, out);
+            }
+            out.force(true);
+        }
+        Files.move(tail, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        close();
+    }
+
+    /**
+     * Durably sets a record aside in the quarantine file next to the journal, e.g. one that storage keeps refusing.
+     * @param record Record to set aside.
+     */
+    public void quarantine(JournalRecord record) {
+        try (FileChannel out = FileChannel.open(quarantinePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + '\n').getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                out.write(line);
+            }
+            out.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to quarantine ledger record in " + quarantinePath, e);
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package pl.casino.be.service.ledger;
+
+import pl.casino.be.model.GameHistory;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one player's game in a shared round, settled against a stake reserved when the bet was placed.
+ * @param uid Identifier of the user.
+ * @param stake Reserved amount to debit.
+ * @param payout Amount to credit, zero for a loss.
+ * @param game Game record stored with the moves.
+ */
+public record Settlement(String uid, BigDecimal stake, BigDecimal payout, GameHistory game) {}
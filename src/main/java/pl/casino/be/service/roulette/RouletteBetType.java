@@ -0,0 +1,66 @@
+package pl.casino.be.service.roulette;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Standard European roulette bets. Inside bets are named by the numbers they cover (e.g. split "17-20"),
+ * outside bets by a keyword or their position (e.g. color "red", dozen "2").
+ */
+public enum RouletteBetType {
+    NUMBER(true),
+    SPLIT(true),
+    STREET(true),
+    CORNER(true),
+    LINE(true),
+    DOZEN(false),
+    COLUMN(false),
+    COLOR(false),
+    PARITY(false),
+    HALF(false);
+
+    private final boolean numbered;
+
+    RouletteBetType(boolean numbered) {
+        this.numbered = numbered;
+    }
+
+    /**
+     * @param name Bet type as sent by clients, case-insensitive.
+     * @throws IllegalArgumentException if the type is unknown.
+     */
+    public static RouletteBetType fromName(String name) {
+        if (name != null) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException(MessageFormat.format("Unknown bet type: {0}", name));
+    }
+
+    /**
+     * Normalizes a bet value, so that e.g. "20-17" and "17,20" name the same split.
+     * @throws IllegalArgumentException if a numbered bet contains something other than numbers.
+     */
+    String canonicalValue(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(MessageFormat.format("Missing value for {0} bet.", name().toLowerCase(Locale.ROOT)));
+        }
+        if (!numbered) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+        try {
+            return Arrays.stream(value.trim().split("[^0-9]+"))
+                    .mapToInt(Integer::parseInt)
+                    .sorted()
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining("-"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(MessageFormat.format("Invalid {0} bet: {1}", name().toLowerCase(Locale.ROOT), value));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package pl.casino.be.service.roulette;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Every standard bet of a single-zero wheel, precomputed as a bitmask of the pockets it covers
+ * (bit n = pocket n) together with its payout multiplier (stake included).
+ */
+public final class RoulettePayoutTable {
+
+    public static final int POCKETS = 37;
+
+    private static final int[] RED_NUMBERS = {1, 3, 5, 7, 9, 12, 14, 16, 18, 19, 21, 23, 25, 27, 30, 32, 34, 36};
+
+    /**
+     * @param type Bet type.
+     * @param value Canonical bet value.
+     * @param mask Pockets covered by the bet.
+     * @param multiplier Amount returned per unit staked when the bet wins.
+     */
+    public record BetDefinition(RouletteBetType type, String value, long mask, int multiplier) {}
+
+    private static final Map<String, BetDefinition> BETS = new HashMap<>();
+
+    static {
+        for (int n = 0; n < POCKETS; n++) {
+            add(RouletteBetType.NUMBER, 36, n);
+        }
+        for (int n = 1; n <= 36; n++) {
+            if (n % 3 != 0) add(RouletteBetType.SPLIT, 18, n, n + 1);
+            if (n <= 33) add(RouletteBetType.SPLIT, 18, n, n + 3);
+        }
+        add(RouletteBetType.SPLIT, 18, 0, 1);
+        add(RouletteBetType.SPLIT, 18, 0, 2);
+        add(RouletteBetType.SPLIT, 18, 0, 3);
+        for (int row = 0; row < 12; row++) {
+            add(RouletteBetType.STREET, 12, 3 * row + 1, 3 * row + 2, 3 * row + 3);
+        }
+        add(RouletteBetType.STREET, 12, 0, 1, 2);
+        add(RouletteBetType.STREET, 12, 0, 2, 3);
+        for (int n = 1; n <= 32; n++) {
+            if (n % 3 != 0) add(RouletteBetType.CORNER, 9, n, n + 1, n + 3, n + 4);
+        }
+        add(RouletteBetType.CORNER, 9, 0, 1, 2, 3);
+        for (int row = 0; row < 11; row++) {
+            add(RouletteBetType.LINE, 6, IntStream.rangeClosed(3 * row + 1, 3 * row + 6).toArray());
+        }
+        for (int dozen = 1; dozen <= 3; dozen++) {
+            add(RouletteBetType.DOZEN, String.valueOf(dozen), 3, IntStream.rangeClosed(12 * dozen - 11, 12 * dozen).toArray());
+        }
+        for (int column = 1; column <= 3; column++) {
+            int remainder = column % 3;
+            add(RouletteBetType.COLUMN, String.valueOf(column), 3, IntStream.rangeClosed(1, 36).filter(n -> n % 3 == remainder).toArray());
+        }
+        long red = mask(RED_NUMBERS);
+        add(RouletteBetType.COLOR, "red", 2, red);
+        add(RouletteBetType.COLOR, "black", 2, mask(IntStream.rangeClosed(1, 36).toArray()) & ~red);
+        add(RouletteBetType.PARITY, "odd", 2, IntStream.rangeClosed(1, 36).filter(n -> n % 2 == 1).toArray());
+        add(RouletteBetType.PARITY, "even", 2, IntStream.rangeClosed(1, 36).filter(n -> n % 2 == 0).toArray());
+        add(RouletteBetType.HALF, "low", 2, IntStream.rangeClosed(1, 18).toArray());
+        add(RouletteBetType.HALF, "high", 2, IntStream.rangeClosed(19, 36).toArray());
+    }
+
+    private RoulettePayoutTable() {}
+
+    /**
+     * Resolves a bet as sent by a client.
+     * @param betType Bet type name, e.g. "split".
+     * @param betValue Bet value, e.g. "17-20".
+     * @throws IllegalArgumentException if no such bet exists on the table.
+     */
+    public static BetDefinition lookup(String betType, String betValue) {
+        RouletteBetType type = RouletteBetType.fromName(betType);
+        BetDefinition bet = BETS.get(key(type, type.canonicalValue(betValue)));
+        if (bet == null) {
+            throw new IllegalArgumentException(MessageFormat.format("Invalid {0} bet: {1}", type.name().toLowerCase(Locale.ROOT), betValue));
+        }
+        return bet;
+    }
+
+    private static void add(RouletteBetType type, int multiplier, int... numbers) {
+        String value = IntStream.of(numbers).sorted().mapToObj(String::valueOf).collect(Collectors.joining("-"));
+        add(type, value, multiplier, numbers);
+    }
+
+    private static void add(RouletteBetType type, String value, int multiplier, int... numbers) {
+        add(type, value, multiplier, mask(numbers));
+    }
+
+    private static void add(RouletteBetType type, String value, int multiplier, long mask) {
+        BETS.put(key(type, value), new BetDefinition(type, value, mask, multiplier));
+    }
+
+    private static long mask(int... numbers) {
+        long mask = 0;
+        for (int n : numbers) {
+            mask |= 1L << n;
+        }
+        return mask;
+    }
+
+    private static String key(RouletteBetType type, String value) {
+        return type.name() + ':' + value;
+    }
+}
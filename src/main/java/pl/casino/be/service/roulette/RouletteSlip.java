@@ -0,0 +1,85 @@
+package pl.casino.be.service.roulette;
+
+import pl.casino.be.dto.BetRequest;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.List;
+
+/**
+ * A set of bets placed on one spin, resolved against the {@link RoulettePayoutTable} once when the slip is built.
+ * Settling a spin is then one mask test and one addition per bet, in whole cents.
+ */
+public final class RouletteSlip {
+
+    public static final int MAX_BETS = 100;
+
+    private final long[] masks;
+    private final long[] payoutCents;
+    private final long stakeCents;
+
+    private RouletteSlip(long[] masks, long[] payoutCents, long stakeCents) {
+        this.masks = masks;
+        this.payoutCents = payoutCents;
+        this.stakeCents = stakeCents;
+    }
+
+    /**
+     * @param bets Bets of the slip.
+     * @throws IllegalArgumentException if the slip is empty, too large, or contains an invalid bet or amount.
+     */
+    public static RouletteSlip of(List<BetRequest> bets) {
+        if (bets == null || bets.isEmpty()) {
+            throw new IllegalArgumentException("At least one bet is required.");
+        }
+        if (bets.size() > MAX_BETS) {
+            throw new IllegalArgumentException(MessageFormat.format("A slip holds at most {0} bets.", MAX_BETS));
+        }
+        long[] masks = new long[bets.size()];
+        long[] payoutCents = new long[bets.size()];
+        long stakeCents = 0;
+        for (int i = 0; i < bets.size(); i++) {
+            BetRequest bet = bets.get(i);
+            RoulettePayoutTable.BetDefinition definition = RoulettePayoutTable.lookup(bet.betType(), bet.betValue());
+            long amountCents = toCents(bet.amount());
+            masks[i] = definition.mask();
+            payoutCents[i] = amountCents * definition.multiplier();
+            stakeCents += amountCents;
+        }
+        return new RouletteSlip(masks, payoutCents, stakeCents);
+    }
+
+    public BigDecimal stake() {
+        return BigDecimal.valueOf(stakeCents, 2);
+    }
+
+    /**
+     * @param pocket Winning pocket (0-36).
+     * @return Total amount returned by the winning bets, stakes included.
+     */
+    public BigDecimal payout(int pocket) {
+        long bit = 1L << pocket;
+        long total = 0;
+        for (int i = 0; i < masks.length; i++) {
+            if ((masks[i] & bit) != 0) {
+                total += payoutCents[i];
+            }
+        }
+        return BigDecimal.valueOf(total, 2);
+    }
+
+    public int size() {
+        return masks.length;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Bet amount must be positive.");
+        }
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(MessageFormat.format("Invalid bet amount: {0}", amount));
+        }
+    }
+}
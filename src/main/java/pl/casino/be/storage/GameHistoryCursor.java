@@ -0,0 +1,54 @@
+package pl.casino.be.storage;
+
+import pl.casino.be.model.GameHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Keyset position in a user's game history, which is ordered by (timestamp, id) descending.
+ * Sent to clients as an opaque Base64 string.
+ * @param timestamp Epoch millis of the last record of the previous page.
+ * @param id ID of the last record of the previous page.
+ */
+public record GameHistoryCursor(long timestamp, String id) {
+
+    /**
+     * Ascending (timestamp, id) order; pages are read from the end.
+     */
+    public static final Comparator<GameHistory> ORDER = Comparator
+            .comparing((GameHistory history) -> history.getTimestamp().getTime())
+            .thenComparing(GameHistory::getId);
+
+    public static GameHistoryCursor after(GameHistory last) {
+        return new GameHistoryCursor(last.getTimestamp().getTime(), last.getId());
+    }
+
+    /**
+     * @return true if the record comes after this cursor in newest-first order, i.e. is strictly older.
+     */
+    public boolean isBefore(GameHistory history) {
+        long time = history.getTimestamp().getTime();
+        return time < timestamp || (time == timestamp && history.getId().compareTo(id) < 0);
+    }
+
+    public String encode() {
+        String raw = timestamp + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param encoded Cursor as returned by {@link #encode()}.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static GameHistoryCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new GameHistoryCursor(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
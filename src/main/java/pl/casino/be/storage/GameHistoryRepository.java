@@ -0,0 +1,40 @@
+package pl.casino.be.storage;
+
+import pl.casino.be.model.GameHistory;
+
+import java.util.List;
+
+/**
+ * Storage of finished games (the "game_history" collection).
+ */
+public interface GameHistoryRepository {
+
+    /**
+     * Stores a batch of records. Records are keyed by their ID, so writing the same batch twice is harmless.
+     * @param histories Records to store, each with its ID already set.
+     */
+    void saveAll(List<GameHistory> histories);
+
+    /**
+     * @param limit Maximum number of records.
+     * @return The most recent games, newest first.
+     */
+    List<GameHistory> findRecent(int limit);
+
+    /**
+     * @param limit Maximum number of records.
+     * @return The most recent games with a win, newest first.
+     */
+    List<GameHistory> findRecentWins(int limit);
+
+    /**
+     * Reads one page of a user's games, newest first, ordered by (timestamp, id).
+     * @param uid Identifier of the user.
+     * @param after Position after which the page starts, or null for the first page.
+     * @param limit Maximum number of records.
+     * @return Games of the user strictly after the cursor.
+     */
+    List<GameHistory> findByUser(String uid, GameHistoryCursor after, int limit);
+
+    long count();
+}
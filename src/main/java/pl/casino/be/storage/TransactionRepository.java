@@ -0,0 +1,30 @@
+package pl.casino.be.storage;
+
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Storage of wallet transactions (the "transactions" collection).
+ */
+public interface TransactionRepository {
+
+    /**
+     * Atomically stores transaction records, adds their amounts to the user balances and stores the games they settle.
+     * Balances are changed rather than overwritten, so nodes moving the same user's money keep each other's moves.
+     * Records are keyed by their ID and a record that is already stored is not applied again,
+     * so writing the same batch twice is harmless.
+     * @param transactions Records to store, each with its ID already set.
+     * @param games Game records settled by these transactions, each with its ID already set.
+     */
+    void saveAndApply(List<Transaction> transactions, List<GameHistory> games);
+
+    /**
+     * @param limit Maximum number of records.
+     * @return The most recent transactions, newest first.
+     */
+    List<Transaction> findRecent(int limit);
+
+    long count();
+}
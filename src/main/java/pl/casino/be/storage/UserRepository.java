@@ -0,0 +1,33 @@
+package pl.casino.be.storage;
+
+import pl.casino.be.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of user profiles (the "users" collection).
+ */
+public interface UserRepository {
+
+    Optional<User> findById(String uid);
+
+    /**
+     * Creates or replaces the user profile.
+     * @param user Profile to store, keyed by its UID.
+     */
+    void save(User user);
+
+    List<User> findAll();
+
+    /**
+     * Looks up display names of several users at once. Unknown UIDs are left out of the result.
+     * @param uids Identifiers of the users.
+     * @return Display name per UID.
+     */
+    Map<String, String> findDisplayNames(Collection<String> uids);
+
+    long count();
+}
@@ -0,0 +1,108 @@
+package pl.casino.be.storage.embedded;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped, append-only record log.
+ * Each record is laid out as {@code [int length][int crc32][byte type][payload]}; a zero length marks the end
+ * of the written data. The file is mapped in one region that is doubled whenever it fills up, which caps a
+ * single log at 2 GB.
+ */
+final class AppendOnlyLog implements Closeable {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    private static final int MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(byte type, byte[] payload);
+    }
+
+    private final FileChannel channel;
+    private final boolean syncWrites;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    AppendOnlyLog(Path path, int initialSize, boolean syncWrites) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncWrites = syncWrites;
+        long size = Math.max(channel.size(), initialSize);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Visits every intact record from the start of the log and positions the log after the last one.
+     * Reading stops at the first torn or corrupted record; anything after it is overwritten by later appends.
+     */
+    synchronized void replay(RecordVisitor visitor) {
+        int offset = 0;
+        CRC32 crc = new CRC32();
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) break;
+            int checksum = buffer.getInt(offset + Integer.BYTES);
+            byte type = buffer.get(offset + 2 * Integer.BYTES);
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_SIZE, payload);
+
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+
+            visitor.visit(type, payload);
+            offset += HEADER_SIZE + length;
+        }
+        position = offset;
+    }
+
+    synchronized void append(byte type, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        ensureCapacity(recordSize + Integer.BYTES);
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+
+        // The length is written last so a crash mid-append never exposes a half-written record.
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(position + 2 * Integer.BYTES, type);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + recordSize, 0);
+        buffer.putInt(position, payload.length);
+        position += recordSize;
+
+        if (syncWrites) {
+            buffer.force();
+        }
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if ((long) position + needed <= buffer.capacity()) {
+            return;
+        }
+        long newSize = Math.max((long) buffer.capacity() * 2, (long) position + needed);
+        if (newSize > MAX_MAPPED_SIZE) {
+            throw new IOException("Embedded storage log is full.");
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,45 @@
+package pl.casino.be.storage.embedded;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.storage.GameHistoryCursor;
+import pl.casino.be.storage.GameHistoryRepository;
+
+import java.util.List;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "embedded")
+public class EmbeddedGameHistoryRepository implements GameHistoryRepository {
+
+    private final EmbeddedStore store;
+
+    EmbeddedGameHistoryRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void saveAll(List<GameHistory> histories) {
+        store.saveGames(histories);
+    }
+
+    @Override
+    public List<GameHistory> findRecent(int limit) {
+        return store.recentGames(limit);
+    }
+
+    @Override
+    public List<GameHistory> findRecentWins(int limit) {
+        return store.recentWins(limit);
+    }
+
+    @Override
+    public List<GameHistory> findByUser(String uid, GameHistoryCursor after, int limit) {
+        return store.gamesOfUser(uid, after, limit);
+    }
+
+    @Override
+    public long count() {
+        return store.gameCount();
+    }
+}
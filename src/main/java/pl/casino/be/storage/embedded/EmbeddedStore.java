@@ -0,0 +1,251 @@
+package pl.casino.be.storage.embedded;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.GameHistoryCursor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Single-node store backing the embedded repositories.
+ * All writes go to one memory-mapped {@link AppendOnlyLog}; the data itself is served from in-memory
+ * indexes that are rebuilt by replaying the log on startup.
+ * Transactions and games are indexed once per ID, so a batch written twice is stored once.
+ * Users are copied in and out, so callers never share the indexed instance.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "embedded")
+class EmbeddedStore {
+
+    private static final byte USER_RECORD = 1;
+    private static final byte LEDGER_RECORD = 2;
+    private static final byte GAME_HISTORY_RECORD = 3;
+    private static final int INITIAL_LOG_SIZE = 16 * 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final boolean syncWrites;
+    private AppendOnlyLog recordLog;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, User> users = new HashMap<>();
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final Set<String> transactionIds = new HashSet<>();
+    private final List<GameHistory> games = new ArrayList<>();
+    private final Set<String> gameIds = new HashSet<>();
+    private final List<GameHistory> wins = new ArrayList<>();
+    private final Map<String, List<GameHistory>> gamesByUser = new HashMap<>();
+
+    EmbeddedStore(ObjectMapper objectMapper,
+                  @Value("${casino.storage.embedded.path:data/casino.log}") String path,
+                  @Value("${casino.storage.embedded.sync-writes:false}") boolean syncWrites) {
+        this.objectMapper = objectMapper;
+        this.path = Path.of(path);
+        this.syncWrites = syncWrites;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        recordLog = new AppendOnlyLog(path, INITIAL_LOG_SIZE, syncWrites);
+        recordLog.replay((type, payload) -> {
+            try {
+                switch (type) {
+                    case USER_RECORD -> indexUser(objectMapper.readValue(payload, User.class));
+                    case LEDGER_RECORD -> indexLedger(objectMapper.readValue(payload, LedgerRecord.class));
+                    case GAME_HISTORY_RECORD -> indexGames(objectMapper.readValue(payload, GameHistoryRecord.class).games());
+                    default -> log.warn("Skipping unknown record type {} in {}", type, path);
+                }
+            } catch (IOException e) {
+                throw new StorageException("Corrupted embedded storage record.", e);
+            }
+        });
+        log.info("Embedded storage opened at {}: {} users, {} transactions, {} games.",
+                path, users.size(), transactions.size(), games.size());
+    }
+
+    void saveUser(User user) {
+        User stored = copy(user);
+        write(USER_RECORD, stored, () -> indexUser(stored));
+    }
+
+    void saveLedger(List<Transaction> newTransactions, List<GameHistory> newGames) {
+        LedgerRecord record = new LedgerRecord(newTransactions, null, newGames);
+        write(LEDGER_RECORD, record, () -> indexLedger(record));
+    }
+
+    void saveGames(List<GameHistory> newGames) {
+        write(GAME_HISTORY_RECORD, new GameHistoryRecord(newGames), () -> indexGames(newGames));
+    }
+
+    Optional<User> findUser(String uid) {
+        return read(() -> Optional.ofNullable(users.get(uid)).map(EmbeddedStore::copy));
+    }
+
+    List<User> findAllUsers() {
+        return read(() -> new ArrayList<>(users.values().stream().map(EmbeddedStore::copy).toList()));
+    }
+
+    List<Transaction> recentTransactions(int limit) {
+        return read(() -> newestFirst(transactions, limit));
+    }
+
+    List<GameHistory> recentGames(int limit) {
+        return read(() -> newestFirst(games, limit));
+    }
+
+    List<GameHistory> recentWins(int limit) {
+        return read(() -> newestFirst(wins, limit));
+    }
+
+    List<GameHistory> gamesOfUser(String uid, GameHistoryCursor after, int limit) {
+        return read(() -> {
+            List<GameHistory> userGames = gamesByUser.getOrDefault(uid, List.of());
+            // Per-user lists are kept sorted by (timestamp, id), so the cursor is found by binary search
+            int end = userGames.size();
+            if (after != null) {
+                GameHistory probe = new GameHistory();
+                probe.setTimestamp(new Date(after.timestamp()));
+                probe.setId(after.id());
+                int index = Collections.binarySearch(userGames, probe, GameHistoryCursor.ORDER);
+                end = index >= 0 ? index : -index - 1;
+            }
+            return newestFirst(userGames.subList(0, end), limit);
+        });
+    }
+
+    long userCount() {
+        return read(users::size);
+    }
+
+    long transactionCount() {
+        return read(transactions::size);
+    }
+
+    long gameCount() {
+        return read(games::size);
+    }
+
+    private void write(byte type, Object record, Runnable index) {
+        lock.writeLock().lock();
+        try {
+            recordLog.append(type, objectMapper.writeValueAsBytes(record));
+            index.run();
+        } catch (IOException e) {
+            throw new StorageException("Failed to append to embedded storage.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexUser(User user) {
+        users.put(user.getUid(), user);
+    }
+
+    private void indexLedger(LedgerRecord record) {
+        // Records written before balances were changed by the transactions carry the resulting balances
+        boolean absolute = record.balances() != null;
+        for (Transaction transaction : record.transactions()) {
+            if (!transactionIds.add(transaction.getId())) {
+                continue;
+            }
+            transactions.add(transaction);
+            User user = users.get(transaction.getUserId());
+            if (!absolute && user != null) {
+                BigDecimal balance = user.getBalance() != null ? user.getBalance() : BigDecimal.ZERO;
+                user.setBalance(balance.add(transaction.getType().signed(transaction.getAmount())));
+            }
+        }
+        if (absolute) {
+            record.balances().forEach((uid, balance) -> {
+                User user = users.get(uid);
+                if (user != null) {
+                    user.setBalance(balance);
+                }
+            });
+        }
+        // Absent in records written before games were settled together with the ledger
+        if (record.games() != null) {
+            indexGames(record.games());
+        }
+    }
+
+    private void indexGames(List<GameHistory> newGames) {
+        for (GameHistory game : newGames) {
+            if (!gameIds.add(game.getId())) {
+                continue;
+            }
+            games.add(game);
+            insertSorted(gamesByUser.computeIfAbsent(game.getUserId(), _ -> new ArrayList<>()), game);
+            if (game.getWinAmount() != null && game.getWinAmount().signum() > 0) {
+                wins.add(game);
+            }
+        }
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setUid(user.getUid());
+        copy.setEmail(user.getEmail());
+        copy.setDisplayName(user.getDisplayName());
+        copy.setBalance(user.getBalance());
+        return copy;
+    }
+
+    // Games almost always arrive in time order, so this is an append in practice
+    private static void insertSorted(List<GameHistory> userGames, GameHistory game) {
+        int index = userGames.size();
+        while (index > 0 && GameHistoryCursor.ORDER.compare(userGames.get(index - 1), game) > 0) {
+            index--;
+        }
+        userGames.add(index, game);
+    }
+
+    // Records are appended in time order, so the newest ones are at the end of each list.
+    private static <T> List<T> newestFirst(List<T> source, int limit) {
+        int size = source.size();
+        int count = Math.min(size, limit);
+        List<T> result = new ArrayList<>(count);
+        for (int i = size - 1; i >= size - count; i--) {
+            result.add(source.get(i));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            recordLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    record LedgerRecord(List<Transaction> transactions, Map<String, BigDecimal> balances, List<GameHistory> games) {}
+
+    record GameHistoryRecord(List<GameHistory> games) {}
+}
@@ -0,0 +1,35 @@
+package pl.casino.be.storage.embedded;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.storage.TransactionRepository;
+
+import java.util.List;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "embedded")
+public class EmbeddedTransactionRepository implements TransactionRepository {
+
+    private final EmbeddedStore store;
+
+    EmbeddedTransactionRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void saveAndApply(List<Transaction> transactions, List<GameHistory> games) {
+        store.saveLedger(transactions, games);
+    }
+
+    @Override
+    public List<Transaction> findRecent(int limit) {
+        return store.recentTransactions(limit);
+    }
+
+    @Override
+    public long count() {
+        return store.transactionCount();
+    }
+}
@@ -0,0 +1,52 @@
+package pl.casino.be.storage.embedded;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.UserRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "embedded")
+public class EmbeddedUserRepository implements UserRepository {
+
+    private final EmbeddedStore store;
+
+    EmbeddedUserRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<User> findById(String uid) {
+        return store.findUser(uid);
+    }
+
+    @Override
+    public void save(User user) {
+        store.saveUser(user);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return store.findAllUsers();
+    }
+
+    @Override
+    public Map<String, String> findDisplayNames(Collection<String> uids) {
+        Map<String, String> names = new HashMap<>();
+        for (String uid : uids) {
+            store.findUser(uid).ifPresent(user -> names.put(uid, user.getDisplayName()));
+        }
+        return names;
+    }
+
+    @Override
+    public long count() {
+        return store.userCount();
+    }
+}
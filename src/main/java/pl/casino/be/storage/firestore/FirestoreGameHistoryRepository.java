@@ -0,0 +1,74 @@
+package pl.casino.be.storage.firestore;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.WriteBatch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.storage.GameHistoryCursor;
+import pl.casino.be.storage.GameHistoryRepository;
+
+import java.util.Date;
+import java.util.List;
+
+import static pl.casino.be.storage.firestore.FirestoreSupport.GAME_HISTORY_COLLECTION;
+import static pl.casino.be.storage.firestore.FirestoreSupport.await;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreGameHistoryRepository implements GameHistoryRepository {
+
+    private final Firestore firestore;
+
+    public FirestoreGameHistoryRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public void saveAll(List<GameHistory> histories) {
+        CollectionReference collection = firestore.collection(GAME_HISTORY_COLLECTION);
+        WriteBatch batch = firestore.batch();
+        for (GameHistory history : histories) {
+            batch.set(collection.document(history.getId()), history);
+        }
+        await(batch.commit());
+    }
+
+    @Override
+    public List<GameHistory> findRecent(int limit) {
+        return await(firestore.collection(GAME_HISTORY_COLLECTION)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get()).toObjects(GameHistory.class);
+    }
+
+    @Override
+    public List<GameHistory> findRecentWins(int limit) {
+        return await(firestore.collection(GAME_HISTORY_COLLECTION)
+                .whereGreaterThan("winAmount", "0") // Filter for wins only
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get()).toObjects(GameHistory.class);
+    }
+
+    @Override
+    public List<GameHistory> findByUser(String uid, GameHistoryCursor after, int limit) {
+        // Document ID breaks ties between games with the same timestamp (needs a composite index)
+        Query query = firestore.collection(GAME_HISTORY_COLLECTION)
+                .whereEqualTo("userId", uid)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+        if (after != null) {
+            query = query.startAfter(new Date(after.timestamp()), after.id());
+        }
+        return await(query.limit(limit).get()).toObjects(GameHistory.class);
+    }
+
+    @Override
+    public long count() {
+        return await(firestore.collection(GAME_HISTORY_COLLECTION).count().get()).getCount();
+    }
+}
@@ -0,0 +1,29 @@
+package pl.casino.be.storage.firestore;
+
+import com.google.api.core.ApiFuture;
+import pl.casino.be.exception.StorageException;
+
+import java.util.concurrent.ExecutionException;
+
+final class FirestoreSupport {
+
+    static final String USERS_COLLECTION = "users";
+    static final String TRANSACTIONS_COLLECTION = "transactions";
+    static final String GAME_HISTORY_COLLECTION = "game_history";
+
+    private FirestoreSupport() {}
+
+    /**
+     * Blocks on a Firestore call and rethrows failures as {@link StorageException}.
+     */
+    static <T> T await(ApiFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while waiting for Firestore.", e);
+        } catch (ExecutionException e) {
+            throw new StorageException("Firestore call failed.", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pl.casino.be.storage.firestore;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pl.casino.be.storage.firestore.FirestoreSupport.GAME_HISTORY_COLLECTION;
+import static pl.casino.be.storage.firestore.FirestoreSupport.TRANSACTIONS_COLLECTION;
+import static pl.casino.be.storage.firestore.FirestoreSupport.USERS_COLLECTION;
+import static pl.casino.be.storage.firestore.FirestoreSupport.await;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreTransactionRepository implements TransactionRepository {
+
+    private final Firestore firestore;
+
+    public FirestoreTransactionRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Runs as a Firestore transaction, so concurrent writers to the same balance are retried instead of overwritten.
+     * Balances are stored as strings, so they are read, added to and written back rather than incremented.
+     */
+    @Override
+    public void saveAndApply(List<Transaction> transactions, List<GameHistory> games) {
+        CollectionReference transactionDocuments = firestore.collection(TRANSACTIONS_COLLECTION);
+        CollectionReference users = firestore.collection(USERS_COLLECTION);
+        CollectionReference gameDocuments = firestore.collection(GAME_HISTORY_COLLECTION);
+        await(firestore.runTransaction(transaction -> {
+            // A Firestore transaction must do all its reads before its first write
+            List<Transaction> unapplied = new ArrayList<>();
+            if (!transactions.isEmpty()) {
+                List<DocumentSnapshot> stored = transaction.getAll(transactions.stream()
+                        .map(record -> transactionDocuments.document(record.getId()))
+                        .toArray(DocumentReference[]::new)).get();
+                for (int i = 0; i < transactions.size(); i++) {
+                    if (!stored.get(i).exists()) {
+                        unapplied.add(transactions.get(i));
+                    }
+                }
+            }
+            Map<String, BigDecimal> changes = new LinkedHashMap<>();
+            for (Transaction record : unapplied) {
+                changes.merge(record.getUserId(), record.getType().signed(record.getAmount()), BigDecimal::add);
+            }
+            Map<String, BigDecimal> balances = new LinkedHashMap<>();
+            if (!changes.isEmpty()) {
+                List<DocumentSnapshot> userDocuments = transaction.getAll(changes.keySet().stream()
+                        .map(users::document)
+                        .toArray(DocumentReference[]::new)).get();
+                for (DocumentSnapshot userDocument : userDocuments) {
+                    User user = userDocument.toObject(User.class);
+                    if (user == null) {
+                        throw new IllegalStateException("User not found: " + userDocument.getId());
+                    }
+                    BigDecimal balance = user.getBalance() != null ? user.getBalance() : BigDecimal.ZERO;
+                    balances.put(userDocument.getId(), balance.add(changes.get(userDocument.getId())));
+                }
+            }
+
+            balances.forEach((uid, balance) -> transaction.update(users.document(uid), "balance", balance));
+            for (Transaction record : unapplied) {
+                transaction.set(transactionDocuments.document(record.getId()), record);
+            }
+            for (GameHistory game : games) {
+                transaction.set(gameDocuments.document(game.getId()), game);
+            }
+            return null;
+        }));
+    }
+
+    @Override
+    public List<Transaction> findRecent(int limit) {
+        return await(firestore.collection(TRANSACTIONS_COLLECTION)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get()).toObjects(Transaction.class);
+    }
+
+    @Override
+    public long count() {
+        return await(firestore.collection(TRANSACTIONS_COLLECTION).count().get()).getCount();
+    }
+}
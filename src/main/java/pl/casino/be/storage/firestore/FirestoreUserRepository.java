@@ -0,0 +1,69 @@
+package pl.casino.be.storage.firestore;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.UserRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static pl.casino.be.storage.firestore.FirestoreSupport.USERS_COLLECTION;
+import static pl.casino.be.storage.firestore.FirestoreSupport.await;
+
+@Repository
+@ConditionalOnProperty(name = "casino.storage.type", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreUserRepository implements UserRepository {
+
+    private final Firestore firestore;
+
+    public FirestoreUserRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public Optional<User> findById(String uid) {
+        DocumentSnapshot userDoc = await(firestore.collection(USERS_COLLECTION).document(uid).get());
+        return userDoc.exists() ? Optional.ofNullable(userDoc.toObject(User.class)) : Optional.empty();
+    }
+
+    @Override
+    public void save(User user) {
+        await(firestore.collection(USERS_COLLECTION).document(user.getUid()).set(user));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return await(firestore.collection(USERS_COLLECTION).get()).toObjects(User.class);
+    }
+
+    @Override
+    public Map<String, String> findDisplayNames(Collection<String> uids) {
+        Map<String, String> names = new HashMap<>();
+        if (uids.isEmpty()) {
+            return names;
+        }
+        DocumentReference[] refs = uids.stream()
+                .map(uid -> firestore.collection(USERS_COLLECTION).document(uid))
+                .toArray(DocumentReference[]::new);
+        // Only the displayName field is transferred
+        for (DocumentSnapshot userDoc : await(firestore.getAll(refs, FieldMask.of("displayName")))) {
+            if (userDoc.exists()) {
+                names.put(userDoc.getId(), userDoc.getString("displayName"));
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public long count() {
+        return await(firestore.collection(USERS_COLLECTION).count().get()).getCount();
+    }
+}
@@ -0,0 +1,188 @@
+package pl.casino.be;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives thousands of local STOMP clients subscribed to the Cosmic Cashout frame topic, a share of which stop
+ * reading their socket, and checks that the others keep receiving every state change in order.
+ * Excluded from the default build; run with {@code ./mvnw test -Pload} (tune with -Dload.clients, -Dload.seconds).
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "casino.storage.type=embedded")
+class WebSocketBroadcastLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 2000);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    // Every 20th client never reads from its socket
+    private static final int SLOW_EVERY = 20;
+    private static final Pattern FRAME = Pattern.compile("\"frame\":(\\d+)");
+
+    @TempDir
+    static Path dataDir;
+
+    @MockitoBean
+    FirebaseApp firebaseApp;
+    @MockitoBean
+    FirebaseAuth firebaseAuth;
+
+    @LocalServerPort
+    int port;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("casino.storage.embedded.path", () -> dataDir.resolve("casino.log").toString());
+        registry.add("casino.ledger.journal-path", () -> dataDir.resolve("ledger.journal").toString());
+    }
+
+    @Test
+    void fastClientsKeepUpWhileSlowClientsFallBehind() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws/websocket");
+        CountDownLatch receiving = new CountDownLatch(CLIENTS);
+        List<Client> clients = new ArrayList<>(CLIENTS);
+        List<CompletableFuture<WebSocket>> connections = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = new Client(i % SLOW_EVERY == 0, receiving);
+            clients.add(client);
+            connections.add(httpClient.newWebSocketBuilder().buildAsync(uri, client));
+        }
+        for (CompletableFuture<WebSocket> connection : connections) {
+            connection.get(30, TimeUnit.SECONDS);
+        }
+        // Subscriptions are registered asynchronously, so wait until every client got its first frame
+        assertTrue(receiving.await(60, TimeUnit.SECONDS), "Not all clients are receiving frames");
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(SECONDS));
+
+        List<Client> fast = clients.stream().filter(client -> !client.slow).toList();
+        // Frames published after every client was subscribed and received by every reading client by now
+        long lastFrame = fast.stream().mapToLong(client -> client.lastFrame).min().orElseThrow();
+        long firstFrame;
+        TreeSet<Long> stateFrames;
+        synchronized (fast.getFirst()) {
+            firstFrame = fast.getFirst().firstFrameAfter(start);
+            assertTrue(lastFrame > firstFrame, "No frames were published during the run");
+            stateFrames = new TreeSet<>(fast.getFirst().stateFrames.subSet(firstFrame, false, lastFrame, true));
+        }
+        long published = lastFrame - firstFrame;
+        long delivered = 0;
+        double worstRatio = 1;
+        for (Client client : fast) {
+            synchronized (client) {
+                assertTrue(client.ordered, "Frames arrived out of order");
+                assertTrue(client.stateFrames.containsAll(stateFrames), "A client missed a state change");
+                long frames = client.framesFrom(firstFrame, lastFrame);
+                delivered += frames;
+                worstRatio = Math.min(worstRatio, (double) frames / published);
+            }
+        }
+        double dropped = meterRegistry.counter("casino.stomp.outbound.dropped").count();
+        log.info("{} clients ({} not reading), {} frames published, {} delivered to reading clients "
+                        + "(worst client got {}%), {} state changes, {} stale frames dropped",
+                CLIENTS, CLIENTS - fast.size(), published, delivered, Math.round(worstRatio * 100), stateFrames.size(),
+                (long) dropped);
+        assertTrue(worstRatio >= 0.5, "A reading client fell behind");
+
+        for (CompletableFuture<WebSocket> connection : connections) {
+            connection.get().abort();
+        }
+    }
+
+    private static final class Client implements WebSocket.Listener {
+        private final boolean slow;
+        private final CountDownLatch receiving;
+        private final StringBuilder text = new StringBuilder();
+        private boolean stalled;
+
+        // Guarded by this
+        private final TreeSet<Long> stateFrames = new TreeSet<>();
+        private final List<long[]> received = new ArrayList<>();
+        private volatile long lastFrame = -1;
+        private boolean ordered = true;
+
+        private Client(boolean slow, CountDownLatch receiving) {
+            this.slow = slow;
+            this.receiving = receiving;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.sendText("CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n\0", true)
+                    .thenCompose(ws -> ws.sendText("SUBSCRIBE\nid:0\ndestination:/topic/cashout/frame\n\n\0", true));
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                // A slow client stops reading after its first message, so the server's writes back up
+                boolean message = onFrame(text.toString());
+                stalled = slow && message;
+                text.setLength(0);
+            }
+            if (!stalled) {
+                webSocket.request(1);
+            }
+            return null;
+        }
+
+        private synchronized boolean onFrame(String frame) {
+            Matcher matcher = FRAME.matcher(frame);
+            if (!frame.startsWith("MESSAGE") || !matcher.find()) {
+                return false;
+            }
+            long number = Long.parseLong(matcher.group(1));
+            if (lastFrame < 0) {
+                receiving.countDown();
+            }
+            ordered &= number > lastFrame;
+            if (frame.contains("\"state\"")) {
+                stateFrames.add(number);
+            }
+            received.add(new long[]{number, System.nanoTime()});
+            lastFrame = number;
+            return true;
+        }
+
+        private synchronized long framesFrom(long first, long last) {
+            return received.stream().filter(frame -> frame[0] > first && frame[0] <= last).count();
+        }
+
+        private synchronized long firstFrameAfter(long nanos) {
+            return received.stream().filter(frame -> frame[1] >= nanos).mapToLong(frame -> frame[0]).findFirst().orElse(Long.MAX_VALUE);
+        }
+    }
+}
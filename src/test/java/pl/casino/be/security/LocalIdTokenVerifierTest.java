@@ -0,0 +1,102 @@
+package pl.casino.be.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.casino.be.exception.InvalidTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Signs tokens with a generated test key set and checks which ones the local verifier accepts.
+ */
+class LocalIdTokenVerifierTest {
+
+    private static final String PROJECT_ID = "casino-test";
+    private static final String ISSUER = "https://securetoken.google.com/" + PROJECT_ID;
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private KeyPair key;
+    private KeyPair otherKey;
+    private LocalIdTokenVerifier verifier;
+    private long now;
+
+    @BeforeEach
+    void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        key = generator.generateKeyPair();
+        otherKey = generator.generateKeyPair();
+        Map<String, KeyPair> keySet = Map.of("key-1", key);
+        verifier = new LocalIdTokenVerifier(keyId -> Optional.ofNullable(keySet.get(keyId)).map(KeyPair::getPublic),
+                new ObjectMapper(), PROJECT_ID, 30);
+        now = System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    void acceptsValidToken() throws GeneralSecurityException {
+        String token = sign("key-1", key.getPrivate(), claims(PROJECT_ID, ISSUER, now + 3600, ",\"role\":\"ADMIN\""));
+
+        VerifiedToken verified = verifier.verify(token);
+
+        assertEquals(new VerifiedToken("user-1", "ADMIN", "user@example.com", null, now + 3600), verified);
+        assertEquals("USER", verifier.verify(sign("key-1", key.getPrivate(), claims(PROJECT_ID, ISSUER, now + 3600, ""))).role());
+    }
+
+    @Test
+    void rejectsBadSignatureUnknownKeyAndTampering() throws GeneralSecurityException {
+        String claims = claims(PROJECT_ID, ISSUER, now + 3600, "");
+        String valid = sign("key-1", key.getPrivate(), claims);
+        String tampered = valid.substring(0, valid.indexOf('.') + 1)
+                + BASE64_URL.encodeToString(claims.replace("user-1", "user-2").getBytes(StandardCharsets.UTF_8))
+                + valid.substring(valid.lastIndexOf('.'));
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(sign("key-1", otherKey.getPrivate(), claims)));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(sign("key-2", otherKey.getPrivate(), claims)));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(tampered));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify("not.a-token"));
+        String unsigned = BASE64_URL.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8))
+                + valid.substring(valid.indexOf('.'), valid.lastIndexOf('.') + 1);
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(unsigned));
+    }
+
+    @Test
+    void rejectsWrongClaims() throws GeneralSecurityException {
+        assertThrows(InvalidTokenException.class,
+                () -> verifier.verify(sign("key-1", key.getPrivate(), claims("other-project", ISSUER, now + 3600, ""))));
+        assertThrows(InvalidTokenException.class,
+                () -> verifier.verify(sign("key-1", key.getPrivate(), claims(PROJECT_ID, "https://securetoken.google.com/other", now + 3600, ""))));
+        assertThrows(InvalidTokenException.class,
+                () -> verifier.verify(sign("key-1", key.getPrivate(), claims(PROJECT_ID, ISSUER, now - 60, ""))));
+    }
+
+    @Test
+    void rejectsTokenWithoutAuthTime() throws GeneralSecurityException {
+        String claims = claims(PROJECT_ID, ISSUER, now + 3600, "").replace(",\"auth_time\":" + now, "");
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(sign("key-1", key.getPrivate(), claims)));
+    }
+
+    private String claims(String audience, String issuer, long expiresAt, String extra) {
+        return "{\"aud\":\"" + audience + "\",\"iss\":\"" + issuer + "\",\"sub\":\"user-1\",\"email\":\"user@example.com\""
+                + ",\"iat\":" + now + ",\"auth_time\":" + now + ",\"exp\":" + expiresAt + extra + "}";
+    }
+
+    private static String sign(String keyId, PrivateKey privateKey, String claims) throws GeneralSecurityException {
+        String header = BASE64_URL.encodeToString(("{\"alg\":\"RS256\",\"kid\":\"" + keyId + "\",\"typ\":\"JWT\"}").getBytes(StandardCharsets.UTF_8));
+        String payload = BASE64_URL.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(privateKey);
+        signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        return header + "." + payload + "." + BASE64_URL.encodeToString(signature.sign());
+    }
+}
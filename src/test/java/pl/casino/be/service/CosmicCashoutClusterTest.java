@@ -0,0 +1,183 @@
+package pl.casino.be.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import pl.casino.be.dto.PlayerStateDto;
+import pl.casino.be.exception.InsufficientFundsException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.service.cashout.CashoutFrameBroadcaster;
+import pl.casino.be.service.cluster.ClusterNode;
+import pl.casino.be.service.cluster.LocalClusterTransport;
+import pl.casino.be.service.fair.FairDraw;
+import pl.casino.be.service.fair.FairGame;
+import pl.casino.be.service.fair.ProvablyFairService;
+import pl.casino.be.service.history.GameHistoryWriter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two Cosmic Cashout nodes sharing an in-process transport: one round, run by the leader, served by both.
+ */
+class CosmicCashoutClusterTest {
+
+    private static final BigDecimal STAKE = new BigDecimal("10.00");
+
+    private final LocalClusterTransport transport = new LocalClusterTransport();
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    private final List<Node> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        taskScheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(node -> node.service.shutdown());
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void followerRelaysBetsAndServesTheLeadersRound() {
+        Node leader = startNode("node-a");
+        leader.service.placeBet("user-1", "session-user-1", "Alice", STAKE, null);
+        // Joins a running cluster and syncs the player list from the leader
+        Node follower = startNode("node-b");
+        assertTrue(leader.clusterNode.isLeader());
+        assertFalse(follower.clusterNode.isLeader());
+        assertEquals(List.of("Alice"), usernames(follower));
+
+        follower.service.placeBet("user-2", "session-user-2", "Bob", STAKE, null);
+        verify(leader.walletService).placeBet("user-2", STAKE);
+        verifyNoInteractions(follower.walletService);
+
+        // Only the leader starts rounds
+        follower.service.gameLoop();
+        assertEquals("WAITING", leader.service.getCurrentGameState().gameState());
+        leader.service.gameLoop();
+        leader.frameBroadcaster.publishFrame();
+        follower.frameBroadcaster.publishFrame();
+
+        assertEquals("RUNNING", follower.service.getCurrentGameState().gameState());
+        assertEquals(List.of("Alice", "Bob"), usernames(follower));
+        // The leader's single frame reached the clients of both nodes
+        verify(leader.messagingTemplate, times(1)).send(eq(CashoutFrameBroadcaster.FRAME_TOPIC), any());
+        verify(follower.messagingTemplate, times(1)).send(eq(CashoutFrameBroadcaster.FRAME_TOPIC), any());
+
+        follower.service.cashOut("user-2", "session-user-2");
+        verify(leader.walletService, timeout(1000)).processWin(eq("user-2"), any());
+        verify(follower.walletService, never()).processWin(anyString(), any());
+    }
+
+    @Test
+    void leaderTellsTheOriginatingSessionWhyARelayedBetWasRejected() {
+        Node leader = startNode("node-a");
+        Node follower = startNode("node-b");
+        SimpUser user = mock(SimpUser.class);
+        when(user.getSession("session-user-2")).thenReturn(mock(SimpSession.class));
+        when(follower.userRegistry.getUser("user-2")).thenReturn(user);
+        doThrow(new InsufficientFundsException("Insufficient funds.")).when(leader.walletService).placeBet("user-2", STAKE);
+
+        follower.service.placeBet("user-2", "session-user-2", "Bob", STAKE, null);
+
+        ArgumentCaptor<Object> rejection = ArgumentCaptor.forClass(Object.class);
+        verify(follower.messagingTemplate, timeout(1000))
+                .convertAndSendToUser(eq("user-2"), eq("/queue/errors"), rejection.capture(), anyMap());
+        assertEquals("Insufficient funds.", ((JsonNode) rejection.getValue()).path("message").asText());
+        assertEquals(List.of(), usernames(leader));
+        // The leader does not hold the session, so it must not fall back to the user's other sessions
+        verify(leader.messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void leaderThatLosesTheLeaseMidRoundReturnsTheStakes() {
+        Node leader = startNode("node-a");
+        Node follower = startNode("node-b");
+        leader.service.placeBet("user-1", "session-user-1", "Alice", STAKE, null);
+        leader.service.gameLoop();
+        assertEquals("RUNNING", leader.service.getCurrentGameState().gameState());
+
+        leader.clusterNode.leave();
+        follower.clusterNode.renewLease();
+
+        // The round stops at its next tick instead of running on without the relayed cash-outs
+        verify(leader.walletService, timeout(1000)).refundBets(Map.of("user-1", STAKE));
+        verify(leader.provablyFairService, timeout(1000)).voidDraw(eq(FairGame.COSMIC_CASHOUT), any());
+        // Clients see the round end and the player list reset instead of a round that never crashes
+        verify(leader.messagingTemplate, timeout(1000)).send(eq("/topic/cashout/players"), any());
+        assertEquals("CRASHED", leader.service.getCurrentGameState().gameState());
+        assertEquals(List.of(), usernames(leader));
+        leader.service.cashOut("user-1", "session-user-1");
+        verify(leader.walletService, never()).processWins(any());
+        verify(leader.walletService, never()).processWin(anyString(), any());
+        verify(follower.walletService, never()).processWin(anyString(), any());
+    }
+
+    @Test
+    void followerTakesOverWhenTheLeaderLeaves() {
+        Node leader = startNode("node-a");
+        Node follower = startNode("node-b");
+
+        leader.clusterNode.leave();
+        follower.clusterNode.renewLease();
+        leader.clusterNode.renewLease();
+
+        assertTrue(follower.clusterNode.isLeader());
+        assertFalse(leader.clusterNode.isLeader());
+        follower.service.gameLoop();
+        assertEquals("RUNNING", follower.service.getCurrentGameState().gameState());
+    }
+
+    private Node startNode(String nodeId) {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        return node;
+    }
+
+    private static List<String> usernames(Node node) {
+        return node.service.getPlayerListSnapshot().players().stream().map(PlayerStateDto::getUsername).sorted().toList();
+    }
+
+    private final class Node {
+        private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        private final SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+        private final WalletService walletService = mock(WalletService.class);
+        private final ClusterNode clusterNode;
+        private final CashoutFrameBroadcaster frameBroadcaster;
+        private final ProvablyFairService provablyFairService;
+        private final CosmicCashoutService service;
+
+        private Node(String nodeId) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            clusterNode = new ClusterNode(transport, messagingTemplate, userRegistry, objectMapper, nodeId, 60_000);
+            clusterNode.join();
+            frameBroadcaster = new CashoutFrameBroadcaster(clusterNode, objectMapper);
+            // Every round crashes at 2.99x, so it is still running while the test acts on it
+            provablyFairService = mock(ProvablyFairService.class);
+            when(provablyFairService.draw(any())).thenReturn(new FairDraw(0, "hash", 199));
+            service = new CosmicCashoutService(clusterNode, frameBroadcaster, walletService, mock(GameHistoryWriter.class),
+                    new CasinoMetrics(new SimpleMeterRegistry()), taskScheduler, provablyFairService, 100, 3000);
+            service.joinCluster();
+        }
+    }
+}
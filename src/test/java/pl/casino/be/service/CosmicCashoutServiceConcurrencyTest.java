@@ -0,0 +1,247 @@
+package pl.casino.be.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import pl.casino.be.dto.PlayerStateDto;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.PlayerStatus;
+import pl.casino.be.service.cashout.CashoutFrameBroadcaster;
+import pl.casino.be.service.cluster.ClusterNode;
+import pl.casino.be.service.cluster.LocalClusterTransport;
+import pl.casino.be.service.fair.FairDraw;
+import pl.casino.be.service.fair.ProvablyFairService;
+import pl.casino.be.service.history.GameHistoryWriter;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Hammers bets, the round start and cash-outs concurrently and checks that every debited bet
+ * joins the round and that no bet is paid out more than once.
+ */
+class CosmicCashoutServiceConcurrencyTest {
+
+    private static final int USERS = 2000;
+    private static final int ATTEMPTS_PER_USER = 3;
+    private static final BigDecimal STAKE = new BigDecimal("10.00");
+
+    private final Map<String, AtomicInteger> debits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> payouts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> histories = new ConcurrentHashMap<>();
+
+    private WalletService walletService;
+    private GameHistoryWriter gameHistoryWriter;
+    private CosmicCashoutService service;
+    private ThreadPoolTaskScheduler taskScheduler;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        walletService = mock(WalletService.class);
+        doAnswer(invocation -> {
+            // Wallet I/O takes a while, which widens every race window
+            LockSupport.parkNanos(20_000);
+            count(debits, invocation.getArgument(0));
+            return null;
+        }).when(walletService).placeBet(anyString(), any());
+        doAnswer(invocation -> {
+            LockSupport.parkNanos(20_000);
+            count(payouts, invocation.getArgument(0));
+            return null;
+        }).when(walletService).processWin(anyString(), any());
+
+        gameHistoryWriter = mock(GameHistoryWriter.class);
+        doAnswer(invocation -> {
+            count(histories, invocation.<GameHistory>getArgument(0).getUserId());
+            return true;
+        }).when(gameHistoryWriter).submit(any());
+        doAnswer(invocation -> {
+            invocation.<Collection<GameHistory>>getArgument(0).forEach(history -> count(histories, history.getUserId()));
+            return null;
+        }).when(gameHistoryWriter).submitAll(any());
+
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+        ClusterNode clusterNode = new ClusterNode(new LocalClusterTransport(), mock(SimpMessagingTemplate.class),
+                mock(SimpUserRegistry.class), new ObjectMapper(), "node", 60_000);
+        clusterNode.join();
+        service = new CosmicCashoutService(clusterNode, mock(CashoutFrameBroadcaster.class),
+                walletService, gameHistoryWriter, new CasinoMetrics(new SimpleMeterRegistry()), taskScheduler,
+                new ProvablyFairService("test-salt", 100), 100, 3000);
+        clients = Executors.newFixedThreadPool(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        service.shutdown();
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void betsRacingTheRoundStartAreEitherRejectedOrInTheRound() throws Exception {
+        List<Callable<Void>> bets = new ArrayList<>();
+        for (int user = 0; user < USERS; user++) {
+            String uid = "user-" + user;
+            for (int attempt = 0; attempt < ATTEMPTS_PER_USER; attempt++) {
+                bets.add(() -> {
+                    service.placeBet(uid, uid, uid, STAKE, null);
+                    return null;
+                });
+            }
+        }
+        Collections.shuffle(bets);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < bets.size(); i++) {
+            results.add(clients.submit(bets.get(i)));
+            if (i == bets.size() / 2) {
+                results.add(clients.submit(() -> service.gameLoop()));
+            }
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        Set<String> seated = service.getPlayerListSnapshot().players().stream()
+                .map(PlayerStateDto::getUsername)
+                .collect(Collectors.toSet());
+        assertFalse(debits.isEmpty());
+        assertTrue(debits.keySet().containsAll(seated), "Only debited users may be in the round");
+        // A low crash point may already have ended the round, in which case the bet was settled as a loss
+        debits.forEach((uid, count) -> {
+            assertEquals(1, count.get(), "Duplicate debit for " + uid);
+            assertTrue(seated.contains(uid) || histories.containsKey(uid), "Lost bet of " + uid);
+        });
+        assertNotEquals("WAITING", service.getCurrentGameState().gameState());
+
+        // Bets that arrive while the round runs are rejected without touching the wallet
+        service.placeBet("late-user", "session-late-user", "late-user", STAKE, null);
+        assertFalse(debits.containsKey("late-user"));
+    }
+
+    @Test
+    void autoCashoutTargetsOutOfRangeAreRejectedBeforeTheWallet() {
+        for (String target : List.of("1.00", "1.009", "-1E+30", "1E+30")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.placeBet("user", "session-user", "user", STAKE, new BigDecimal(target)));
+        }
+        assertTrue(debits.isEmpty());
+    }
+
+    @Test
+    void concurrentCashOutsPayEachBetAtMostOnce() throws Exception {
+        for (int user = 0; user < USERS; user++) {
+            String uid = "user-" + user;
+            service.placeBet(uid, uid, uid, STAKE, null);
+        }
+        service.gameLoop();
+
+        List<Callable<Void>> cashOuts = new ArrayList<>();
+        for (int user = 0; user < USERS; user++) {
+            String uid = "user-" + user;
+            for (int attempt = 0; attempt < ATTEMPTS_PER_USER; attempt++) {
+                cashOuts.add(() -> {
+                    service.cashOut(uid, uid);
+                    return null;
+                });
+            }
+        }
+        Collections.shuffle(cashOuts);
+        for (Future<Void> result : clients.invokeAll(cashOuts)) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(USERS, debits.size());
+        payouts.forEach((uid, count) -> assertEquals(1, count.get(), "Duplicate payout for " + uid));
+        // A bet ends as either a cash-out or a loss, so every user has at most one game record
+        histories.forEach((uid, count) -> assertEquals(1, count.get(), "Duplicate game record for " + uid));
+        assertTrue(histories.keySet().containsAll(payouts.keySet()));
+    }
+
+    @Test
+    void failedPayoutKeepsTheBetInTheRound() throws Exception {
+        AtomicBoolean walletDown = new AtomicBoolean(true);
+        CountDownLatch autoPayoutAttempted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (walletDown.get()) throw new StorageException("Wallet unavailable", null);
+            count(payouts, invocation.getArgument(0));
+            return null;
+        }).when(walletService).processWin(anyString(), any());
+        doAnswer(invocation -> {
+            boolean down = walletDown.get();
+            autoPayoutAttempted.countDown();
+            if (down) throw new StorageException("Wallet unavailable", null);
+            invocation.<Map<String, BigDecimal>>getArgument(0).keySet().forEach(uid -> count(payouts, uid));
+            return null;
+        }).when(walletService).processWins(any());
+        // Crash at 1.10x, one second into the round
+        ProvablyFairService provablyFairService = mock(ProvablyFairService.class);
+        when(provablyFairService.draw(any())).thenReturn(new FairDraw(0, "hash", 10));
+        ClusterNode clusterNode = new ClusterNode(new LocalClusterTransport(), mock(SimpMessagingTemplate.class),
+                mock(SimpUserRegistry.class), new ObjectMapper(), "node", 60_000);
+        clusterNode.join();
+        CosmicCashoutService round = new CosmicCashoutService(clusterNode, mock(CashoutFrameBroadcaster.class),
+                walletService, gameHistoryWriter, new CasinoMetrics(new SimpleMeterRegistry()), taskScheduler,
+                provablyFairService, 10, 3000);
+        try {
+            round.placeBet("manual", "session-manual", "manual", STAKE, null);
+            round.placeBet("auto", "session-auto", "auto", STAKE, new BigDecimal("1.01"));
+            round.placeBet("stuck", "session-stuck", "stuck", STAKE, new BigDecimal("1.01"));
+            round.gameLoop();
+
+            assertTrue(autoPayoutAttempted.await(5, TimeUnit.SECONDS));
+            assertThrows(StorageException.class, () -> round.cashOut("manual", "session-manual"));
+            assertTrue(payouts.isEmpty());
+            assertTrue(histories.isEmpty());
+            assertTrue(round.getPlayerListSnapshot().players().stream().allMatch(player -> player.getStatus() == PlayerStatus.IN_GAME));
+
+            // Once the wallet is back the bets can still be cashed out, an auto cash-out target at its target
+            walletDown.set(false);
+            round.cashOut("manual", "session-manual");
+            Map<String, PlayerStateDto> players;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            do {
+                // Retried until the round thread has put the failed auto cash-out back in the game
+                round.cashOut("auto", "session-auto");
+                players = round.getPlayerListSnapshot().players().stream()
+                        .collect(Collectors.toMap(PlayerStateDto::getUsername, player -> player));
+            } while (players.get("auto").getStatus() != PlayerStatus.CASHED_OUT && System.nanoTime() < deadline);
+            assertEquals(PlayerStatus.CASHED_OUT, players.get("auto").getStatus());
+            assertEquals(new BigDecimal("1.01"), players.get("auto").getCashOutMultiplier());
+            assertEquals(PlayerStatus.CASHED_OUT, players.get("manual").getStatus());
+
+            // The bet nobody cashed out is settled as lost at the crash
+            while (!histories.containsKey("stuck") && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(10_000_000);
+            }
+            assertEquals(Set.of("manual", "auto"), payouts.keySet());
+            assertEquals(Set.of("manual", "auto", "stuck"), histories.keySet());
+            histories.forEach((uid, count) -> assertEquals(1, count.get(), "Duplicate game record for " + uid));
+        } finally {
+            round.shutdown();
+        }
+    }
+
+    private static void count(Map<String, AtomicInteger> counters, String uid) {
+        counters.computeIfAbsent(uid, _ -> new AtomicInteger()).incrementAndGet();
+    }
+}
@@ -0,0 +1,46 @@
+package pl.casino.be.service.cashout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pl.casino.be.dto.CashoutFrameDto;
+import pl.casino.be.service.cluster.ClusterNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Queues several state transitions within one frame interval and checks that clients get every one, in order.
+ */
+class CashoutFrameBroadcasterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<CashoutFrameDto> sent = new ArrayList<>();
+
+    @Test
+    void transitionsWithinOneIntervalAreSentInOrder() {
+        ClusterNode clusterNode = mock(ClusterNode.class);
+        when(clusterNode.isLeader()).thenReturn(true);
+        doAnswer(invocation -> sent.add(decode(invocation.getArgument(1))))
+                .when(clusterNode).publishToClients(eq(CashoutFrameBroadcaster.FRAME_TOPIC), any(byte[].class));
+        CashoutFrameBroadcaster broadcaster = new CashoutFrameBroadcaster(clusterNode, objectMapper);
+
+        broadcaster.state("RUNNING");
+        broadcaster.crash(150);
+        broadcaster.state("WAITING");
+        broadcaster.publishFrame();
+
+        assertEquals(List.of("RUNNING", "CRASHED", "WAITING"), sent.stream().map(CashoutFrameDto::state).toList());
+        assertEquals(List.of(1L, 2L, 3L), sent.stream().map(CashoutFrameDto::frame).toList());
+        assertEquals(0, FixedPointMultiplier.toBigDecimal(150).compareTo(sent.get(1).crashPoint()));
+    }
+
+    private CashoutFrameDto decode(byte[] json) throws IOException {
+        return objectMapper.readValue(json, CashoutFrameDto.class);
+    }
+}
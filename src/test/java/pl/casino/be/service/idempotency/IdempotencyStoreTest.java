@@ -0,0 +1,80 @@
+package pl.casino.be.service.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pl.casino.be.exception.IdempotencyKeyException;
+import pl.casino.be.metrics.CasinoMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends the same keyed request repeatedly and concurrently and checks that the action runs once.
+ */
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(new CasinoMetrics(new SimpleMeterRegistry()), 1000, 60_000);
+
+    @Test
+    void concurrentRetriesRunTheActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.execute("user-1", "wallet/deposit", "key-1", "10.00", () -> {
+                        LockSupport.parkNanos(20_000_000);
+                        return runs.incrementAndGet();
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get());
+            }
+        }
+        assertEquals(1, runs.get());
+        // Another user, operation or key is a different request
+        assertEquals(2, store.execute("user-2", "wallet/deposit", "key-1", "10.00", runs::incrementAndGet));
+        assertEquals(3, store.execute("user-1", "wallet/withdraw", "key-1", "10.00", runs::incrementAndGet));
+        assertEquals(4, store.execute("user-1", "wallet/deposit", "key-2", "10.00", runs::incrementAndGet));
+        assertEquals(5, store.execute("user-1", "wallet/deposit", null, "10.00", runs::incrementAndGet));
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequest() {
+        store.execute("user-1", "roulette/play", "key-1", "red", () -> "won");
+
+        assertThrows(IdempotencyKeyException.class, () -> store.execute("user-1", "roulette/play", "key-1", "black", () -> "lost"));
+        assertThrows(IdempotencyKeyException.class, () -> store.execute("user-1", "roulette/play", "k".repeat(256), "red", () -> "won"));
+    }
+
+    @Test
+    void failedRequestCanBeRetried() {
+        assertThrows(IllegalStateException.class, () -> store.execute("user-1", "wallet/withdraw", "key-1", "5", () -> {
+            throw new IllegalStateException("storage unavailable");
+        }));
+
+        assertEquals("ok", store.execute("user-1", "wallet/withdraw", "key-1", "5", () -> "ok"));
+        assertEquals("ok", store.execute("user-1", "wallet/withdraw", "key-1", "5", () -> "again"));
+    }
+
+    @Test
+    void expiredEntriesAreForgotten() throws InterruptedException {
+        IdempotencyStore shortLived = new IdempotencyStore(new CasinoMetrics(new SimpleMeterRegistry()), 1000, 10);
+        shortLived.execute("user-1", "wallet/deposit", "key-1", "1", () -> "first");
+        Thread.sleep(20);
+
+        assertEquals("second", shortLived.execute("user-1", "wallet/deposit", "key-1", "1", () -> "second"));
+    }
+}
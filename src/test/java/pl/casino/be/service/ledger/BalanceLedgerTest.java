@@ -0,0 +1,168 @@
+package pl.casino.be.service.ledger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.casino.be.exception.LedgerSyncException;
+import pl.casino.be.exception.StorageException;
+import pl.casino.be.metrics.CasinoMetrics;
+import pl.casino.be.model.GameHistory;
+import pl.casino.be.model.Transaction;
+import pl.casino.be.model.TransactionType;
+import pl.casino.be.model.User;
+import pl.casino.be.storage.TransactionRepository;
+import pl.casino.be.storage.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the ledger against a real journal file and checks recovery, compaction and quarantine,
+ * and checks that a round whose journal sync fails stays settled.
+ */
+class BalanceLedgerTest {
+
+    private static final BigDecimal TEN = new BigDecimal("10.00");
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Transaction> saved = new CopyOnWriteArrayList<>();
+    private UserRepository userRepository;
+    private TransactionRepository transactionRepository;
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = directory.resolve("ledger.journal");
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(anyString())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setUid(invocation.getArgument(0));
+            user.setBalance(new BigDecimal("100.00"));
+            return Optional.of(user);
+        });
+        transactionRepository = mock(TransactionRepository.class);
+        doAnswer(invocation -> saved.addAll(invocation.getArgument(0)))
+                .when(transactionRepository).saveAndApply(any(), any());
+    }
+
+    @Test
+    void recoveryCutsOffATornLineBeforeTheNextAppend() throws Exception {
+        LedgerEntry entry = new LedgerEntry(1, "tx-1", "user-1", TransactionType.DEPOSIT, TEN, new BigDecimal("110.00"), 0);
+        Files.writeString(journalPath, objectMapper.writeValueAsString(JournalRecord.of(entry)) + "\n{\"entries\":[{\"seq",
+                StandardCharsets.UTF_8);
+
+        BalanceLedger ledger = ledger(1 << 20, 5);
+        ledger.recover();
+        assertEquals(0, new BigDecimal("110.00").compareTo(ledger.balanceOf("user-1").orElseThrow()));
+        ledger.apply("user-1", TEN, TransactionType.DEPOSIT);
+
+        List<LedgerJournal.Recovered> records = journal(1 << 20).readAll();
+        assertEquals(2, records.size());
+        assertEquals(0, new BigDecimal("120.00").compareTo(records.get(1).record().entries().getFirst().balanceAfter()));
+        assertEquals(Files.size(journalPath), records.get(1).end());
+    }
+
+    @Test
+    void flushDiscardsFlushedRecordsFromTheJournal() throws Exception {
+        BalanceLedger ledger = ledger(1 << 20, 5);
+        ledger.recover();
+        ledger.apply("user-1", TEN, TransactionType.DEPOSIT);
+        ledger.apply("user-2", TEN, TransactionType.DEPOSIT);
+
+        ledger.flush();
+
+        assertEquals(2, saved.size());
+        assertEquals(0, Files.size(journalPath));
+        ledger.apply("user-1", TEN, TransactionType.WITHDRAWAL);
+        assertEquals(1, journal(1 << 20).readAll().size());
+    }
+
+    @Test
+    void recordStorageKeepsRefusingIsQuarantined() throws Exception {
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            if (transactions.stream().anyMatch(transaction -> transaction.getUserId().equals("deleted"))) {
+                throw new StorageException("NOT_FOUND: users/deleted", null);
+            }
+            return saved.addAll(transactions);
+        }).when(transactionRepository).saveAndApply(any(), any());
+        BalanceLedger ledger = ledger(1 << 20, 2);
+        ledger.recover();
+        ledger.apply("deleted", TEN, TransactionType.DEPOSIT);
+        ledger.apply("user-1", TEN, TransactionType.DEPOSIT);
+
+        ledger.flush();
+        ledger.flush();
+        assertTrue(saved.isEmpty());
+        ledger.flush();
+
+        assertEquals(List.of("user-1"), saved.stream().map(Transaction::getUserId).toList());
+        assertEquals(1, Files.readAllLines(Path.of(journalPath + ".quarantine")).size());
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    @Test
+    void compactionKeepsTheUnflushedTail() throws Exception {
+        LedgerJournal journal = journal(1);
+        List<JournalRecord> records = List.of(
+                JournalRecord.of(new LedgerEntry(1, "tx-1", "user-1", TransactionType.DEPOSIT, TEN, TEN, 0)),
+                JournalRecord.of(new LedgerEntry(2, "tx-2", "user-1", TransactionType.DEPOSIT, TEN, TEN.add(TEN), 0)));
+        long[] ends = journal.write(records);
+        journal.sync(ends[1]);
+
+        journal.compact(ends[0]);
+        long[] next = journal.write(List.of(records.getFirst()));
+        journal.sync(next[0]);
+        journal.close();
+
+        List<LedgerJournal.Recovered> recovered = journal(1).readAll();
+        assertEquals(List.of("tx-2", "tx-1"),
+                recovered.stream().map(record -> record.record().entries().getFirst().transactionId()).toList());
+        assertEquals(next[0] - ends[0], Files.size(journalPath));
+    }
+
+    @Test
+    void roundWhoseJournalSyncFailsStaysSettled() {
+        LedgerJournal journal = mock(LedgerJournal.class);
+        when(journal.write(any())).thenReturn(new long[] {1});
+        doThrow(new UncheckedIOException(new IOException("disk full"))).when(journal).sync(anyLong());
+        BalanceLedger ledger = new BalanceLedger(userRepository, transactionRepository, journal,
+                new CasinoMetrics(new SimpleMeterRegistry()), 5);
+        ledger.reserve("user-1", TEN);
+
+        assertThrows(LedgerSyncException.class,
+                () -> ledger.settleReserved(List.of(new Settlement("user-1", TEN, BigDecimal.ZERO, new GameHistory()))));
+
+        // The stake is debited and no longer reserved, so a later reservation is not eaten into
+        assertEquals(0, new BigDecimal("90.00").compareTo(ledger.balanceOf("user-1").orElseThrow()));
+        ledger.reserve("user-1", TEN);
+        assertEquals(0, new BigDecimal("80.00").compareTo(ledger.balanceOf("user-1").orElseThrow()));
+    }
+
+    private LedgerJournal journal(long compactBytes) {
+        return new LedgerJournal(objectMapper, journalPath.toString(), true, compactBytes);
+    }
+
+    private BalanceLedger ledger(long compactBytes, int maxFlushAttempts) {
+        return new BalanceLedger(userRepository, transactionRepository, journal(compactBytes),
+                new CasinoMetrics(new SimpleMeterRegistry()), maxFlushAttempts);
+    }
+}